@@ -0,0 +1,152 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.layout;
+
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.SpigotGradle;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JarLayoutBenchmark {
+
+    private static final int JARS = 100;
+    private static final int CLASSES = 200;
+
+    @Param({"default", "ordered", "stored"})
+    public String _layout;
+
+    private Path _directory;
+    private final List<File> _jars = new ArrayList<>();
+
+    /**
+     * Creates {@link #JARS} plugin jars in the given layout. The default
+     * layout is the one of the jar task, with the classes before the
+     * metadata file.
+     *
+     * @throws IOException If a jar could not be written
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        _directory = Files.createTempDirectory("layout-benchmark");
+        File temporaryDir = Files.createDirectory(_directory.resolve("tmp")).toFile();
+        for (int i = 0; i < JARS; i++) {
+            File jar = _directory.resolve("plugin" + i + ".jar").toFile();
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+                for (int j = 0; j < CLASSES; j++) {
+                    String name = "plugin" + i + "/Class" + j;
+                    out.putNextEntry(new ZipEntry(name + ".class"));
+                    out.write(type(name, j == CLASSES / 2 ? "org/bukkit/event/Listener" : null));
+                    out.closeEntry();
+                }
+                out.putNextEntry(new ZipEntry(PluginYml.FILENAME_SPIGOT));
+                out.write(("name: Plugin" + i + "\nversion: '1.0'\nmain: plugin" + i + ".Class0\n").getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+            if (!"default".equals(_layout)) {
+                PluginJarLayoutAction.rewrite(jar, true, "stored".equals(_layout), temporaryDir);
+            }
+            _jars.add(jar);
+        }
+    }
+
+    /**
+     * Removes the jars created by {@link #setup()}.
+     *
+     * @throws IOException If a file could not be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SpigotGradle.cleanDirectory(_directory);
+        Files.delete(_directory);
+    }
+
+    /**
+     * Discovers all plugins like the plugin loader does. Each jar is opened,
+     * its {@code plugin.yml} read and the main class loaded.
+     *
+     * @return The number of read bytes
+     * @throws IOException If a jar could not be read
+     */
+    @Benchmark
+    public long discover() throws IOException {
+        long bytes = 0;
+        byte[] buffer = new byte[8192];
+        for (int i = 0; i < _jars.size(); i++) {
+            try (JarFile jar = new JarFile(_jars.get(i))) {
+                for (String name : new String[] {PluginYml.FILENAME_SPIGOT, "plugin" + i + "/Class0.class"}) {
+                    JarEntry entry = jar.getJarEntry(name);
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            bytes += read;
+                        }
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static byte[] type(String name, String listener) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", listener == null ? null : new String[] {listener});
+        for (int i = 0; i < 8; i++) {
+            writer.visitField(Opcodes.ACC_PRIVATE, "field" + i, "Ljava/lang/String;", null, null).visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
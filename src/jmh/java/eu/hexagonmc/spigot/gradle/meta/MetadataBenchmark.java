@@ -0,0 +1,167 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.hexagonmc.spigot.gradle.meta;
+
+import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.SpigotGradle;
+import eu.hexagonmc.spigot.gradle.meta.MetadataSpigotExtension.Permission;
+import groovy.lang.Closure;
+import org.gradle.api.NamedDomainObjectContainer;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MetadataBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int _nodes;
+
+    private Path _directory;
+    private MetadataSpigotExtension _extension;
+    private MetadataSpigotSnapshot _snapshot;
+    private PluginMetadata _metadata;
+    private Path _target;
+
+    /**
+     * Creates a project with a spigot extension holding {@link #_nodes}
+     * commands and permissions, half of them configured by {@link Closure}.
+     *
+     * @throws IOException If the temporary directory could not be created
+     */
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        _directory = Files.createTempDirectory("metadata-benchmark");
+        Project project = ProjectBuilder.builder().withProjectDir(_directory.toFile()).build();
+        project.setVersion("1.0.0");
+        _extension = new MetadataSpigotExtension(project);
+        _extension.main("eu.hexagonmc.Benchmark");
+        _extension.author("HexagonMC");
+        NamedDomainObjectContainer<Permission> permissions = (NamedDomainObjectContainer<Permission>) _extension.permissions();
+        for (int i = 0; i < _nodes; i++) {
+            String name = "command" + i;
+            _extension.command(name);
+            Permission permission = permissions.maybeCreate("benchmark." + name);
+            if (i % 2 == 0) {
+                permission.description(closure("Permission for " + name));
+            } else {
+                permission.description("Permission for " + name);
+            }
+            permission.value("op");
+            if (i > 0) {
+                permission.child("benchmark.command" + (i - 1), true);
+            }
+        }
+        _snapshot = _extension.snapshot();
+        _metadata = _snapshot.build();
+        _target = _directory.resolve(PluginYml.FILENAME_SPIGOT);
+    }
+
+    /**
+     * Removes the files written by {@link #write()} and {@link #stream()}.
+     *
+     * @throws IOException If a file could not be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(_target);
+    }
+
+    @Benchmark
+    public String resolveString() {
+        return SpigotGradle.resolveString("value");
+    }
+
+    @Benchmark
+    public String resolveClosure() {
+        return SpigotGradle.resolveString(closure("value"));
+    }
+
+    @Benchmark
+    public MetadataSpigotSnapshot snapshot() {
+        return _extension.snapshot();
+    }
+
+    @Benchmark
+    public PluginMetadata build() {
+        return _snapshot.build();
+    }
+
+    @Benchmark
+    public PluginMetadata merge() {
+        PluginMetadata meta = new PluginMetadata(_snapshot.getName());
+        meta.accept(_metadata);
+        return meta;
+    }
+
+    @Benchmark
+    public Path write() throws IOException {
+        PluginYml.write(_target, _metadata);
+        return _target;
+    }
+
+    @Benchmark
+    public Path stream() throws IOException {
+        try (MetadataWriter writer = new MetadataWriter(_target)) {
+            _snapshot.write(writer);
+        }
+        return _target;
+    }
+
+    private static Closure<String> closure(String value) {
+        return new Closure<String>(null) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String call() {
+                return value;
+            }
+        };
+    }
+}
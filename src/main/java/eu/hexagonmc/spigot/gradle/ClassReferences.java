@@ -0,0 +1,297 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+final class ClassReferences extends ClassVisitor {
+
+    private String _name;
+    private String _superName;
+    private final List<String> _interfaces = new ArrayList<>();
+    private final Set<String> _types = new HashSet<>();
+    private final Set<String> _strings = new HashSet<>();
+
+    /**
+     * Creates a new scanner for a single class.
+     */
+    private ClassReferences() {
+        super(Opcodes.ASM6);
+    }
+
+    /**
+     * Scans the given class file for all classes it references.
+     *
+     * @param bytes The class file
+     * @return The {@link ClassReferences}
+     */
+    static ClassReferences scan(byte[] bytes) {
+        ClassReferences references = new ClassReferences();
+        new ClassReader(bytes).accept(references, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        references._types.remove(references._name);
+        return references;
+    }
+
+    /**
+     * Gets the internal name of the class.
+     *
+     * @return The internal name
+     */
+    String getName() {
+        return _name;
+    }
+
+    /**
+     * Gets the internal name of the super class.
+     *
+     * @return The internal name or null
+     */
+    String getSuperName() {
+        return _superName;
+    }
+
+    /**
+     * Gets the internal names of the interfaces of the class.
+     *
+     * @return The internal names
+     */
+    List<String> getInterfaces() {
+        return _interfaces;
+    }
+
+    /**
+     * Gets the internal names of all classes referenced by the class.
+     *
+     * @return The internal names
+     */
+    Set<String> getTypes() {
+        return _types;
+    }
+
+    /**
+     * Gets the string constants of the class. They are used to find classes
+     * loaded by name.
+     *
+     * @return The string constants
+     */
+    Set<String> getStrings() {
+        return _strings;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        _name = name;
+        _superName = superName;
+        if (superName != null) {
+            _types.add(superName);
+        }
+        if (interfaces != null) {
+            _interfaces.addAll(Arrays.asList(interfaces));
+            _types.addAll(_interfaces);
+        }
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+        addDescriptor(descriptor);
+        return annotation();
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+        addDescriptor(descriptor);
+        return new FieldVisitor(Opcodes.ASM6) {
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String annotation, boolean visible) {
+                addDescriptor(annotation);
+                return annotation();
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        addDescriptor(descriptor);
+        if (exceptions != null) {
+            _types.addAll(Arrays.asList(exceptions));
+        }
+        return new MethodVisitor(Opcodes.ASM6) {
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String annotation, boolean visible) {
+                addDescriptor(annotation);
+                return annotation();
+            }
+
+            @Override
+            public AnnotationVisitor visitParameterAnnotation(int parameter, String annotation, boolean visible) {
+                addDescriptor(annotation);
+                return annotation();
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotationDefault() {
+                return annotation();
+            }
+
+            @Override
+            public void visitTypeInsn(int opcode, String type) {
+                addInternalName(type);
+            }
+
+            @Override
+            public void visitFieldInsn(int opcode, String owner, String field, String fieldDescriptor) {
+                addInternalName(owner);
+                addDescriptor(fieldDescriptor);
+            }
+
+            @Override
+            public void visitMethodInsn(int opcode, String owner, String method, String methodDescriptor, boolean itf) {
+                addInternalName(owner);
+                addDescriptor(methodDescriptor);
+            }
+
+            @Override
+            public void visitInvokeDynamicInsn(String method, String methodDescriptor, Handle bootstrap, Object... arguments) {
+                addDescriptor(methodDescriptor);
+                addConstant(bootstrap);
+                for (Object argument : arguments) {
+                    addConstant(argument);
+                }
+            }
+
+            @Override
+            public void visitLdcInsn(Object value) {
+                addConstant(value);
+            }
+
+            @Override
+            public void visitMultiANewArrayInsn(String arrayDescriptor, int dimensions) {
+                addDescriptor(arrayDescriptor);
+            }
+
+            @Override
+            public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+                if (type != null) {
+                    _types.add(type);
+                }
+            }
+        };
+    }
+
+    private AnnotationVisitor annotation() {
+        return new AnnotationVisitor(Opcodes.ASM6) {
+
+            @Override
+            public void visit(String key, Object value) {
+                addConstant(value);
+            }
+
+            @Override
+            public void visitEnum(String key, String enumDescriptor, String value) {
+                addDescriptor(enumDescriptor);
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String key, String annotation) {
+                addDescriptor(annotation);
+                return this;
+            }
+
+            @Override
+            public AnnotationVisitor visitArray(String key) {
+                return this;
+            }
+        };
+    }
+
+    private void addConstant(Object value) {
+        if (value instanceof Type) {
+            addType((Type) value);
+        } else if (value instanceof Handle) {
+            Handle handle = (Handle) value;
+            addInternalName(handle.getOwner());
+            addDescriptor(handle.getDesc());
+        } else if (value instanceof String) {
+            _strings.add((String) value);
+        }
+    }
+
+    private void addInternalName(String name) {
+        if (name.startsWith("[")) {
+            addDescriptor(name);
+        } else {
+            _types.add(name);
+        }
+    }
+
+    private void addDescriptor(String descriptor) {
+        addType(Type.getType(descriptor));
+    }
+
+    private void addType(Type type) {
+        switch (type.getSort()) {
+            case Type.ARRAY:
+                addType(type.getElementType());
+                break;
+            case Type.OBJECT:
+                _types.add(type.getInternalName());
+                break;
+            case Type.METHOD:
+                for (Type argument : type.getArgumentTypes()) {
+                    addType(argument);
+                }
+                addType(type.getReturnType());
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.TreeSet;
+
+@CacheableTask
+public class ExtractRuntimeTask extends DefaultTask {
+
+    public static final String RUNTIME_PACKAGE = "eu.hexagonmc.spigot.gradle.runtime";
+
+    private final ListProperty<String> _helpers;
+    private final Property<String> _packageName;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public ExtractRuntimeTask() {
+        _helpers = getProject().getObjects().listProperty(String.class);
+        _packageName = getProject().getObjects().property(String.class);
+    }
+
+    /**
+     * Gets the internal name of the given runtime helper class relocated to
+     * the given package.
+     *
+     * @param helper The runtime helper class
+     * @param packageName The package the helpers are relocated to
+     * @return The relocated internal name
+     */
+    public static String getInternalName(Class<?> helper, String packageName) {
+        return PluginClasses.toInternalName(packageName + "." + helper.getSimpleName());
+    }
+
+    /**
+     * Gets the property holding the names of the runtime helper classes to
+     * ship with the plugin. Helper classes must not have nested classes.
+     *
+     * @return The property
+     */
+    @Input
+    public ListProperty<String> getHelpers() {
+        return _helpers;
+    }
+
+    /**
+     * Gets the property holding the package the runtime helper classes are
+     * relocated to. Each plugin ships its own copy of the helpers, so they
+     * must not share a package with the helpers of other plugins.
+     *
+     * @return The property
+     */
+    @Input
+    public Property<String> getPackageName() {
+        return _packageName;
+    }
+
+    /**
+     * Gets the output directory of the runtime helper classes.
+     *
+     * @return The output directory
+     */
+    @OutputDirectory
+    public File getOutputDir() {
+        return new File(getTemporaryDir(), "classes");
+    }
+
+    /**
+     * Gets if any runtime helper class is requested.
+     *
+     * @return True if there are runtime helpers false otherwise
+     */
+    boolean hasHelpers() {
+        return !_helpers.getOrElse(Collections.emptyList()).isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void extract() {
+        Path outputDir = getOutputDir().toPath();
+        try {
+            SpigotGradle.cleanDirectory(outputDir);
+            String source = PluginClasses.toInternalName(RUNTIME_PACKAGE) + "/";
+            String target = PluginClasses.toInternalName(_packageName.get()) + "/";
+            Remapper remapper = new Remapper() {
+
+                /**
+                 * {@inheritDoc}.
+                 */
+                @Override
+                public String map(String internalName) {
+                    return internalName.startsWith(source) ? target + internalName.substring(source.length()) : internalName;
+                }
+            };
+            for (String helper : new TreeSet<>(_helpers.get())) {
+                String classFile = PluginClasses.toInternalName(helper) + PluginClasses.CLASS_SUFFIX;
+                ClassReader reader;
+                try (InputStream input = getClass().getClassLoader().getResourceAsStream(classFile)) {
+                    if (input == null) {
+                        throw new GradleException("Unknown runtime helper " + helper);
+                    }
+                    reader = new ClassReader(input);
+                }
+                ClassWriter writer = new ClassWriter(0);
+                reader.accept(new ClassRemapper(writer, remapper), 0);
+                Path file = outputDir.resolve(remapper.map(reader.getClassName()) + PluginClasses.CLASS_SUFFIX);
+                Files.createDirectories(file.getParent());
+                Files.write(file, writer.toByteArray());
+            }
+        } catch (IOException e) {
+            throw new GradleException("Could not extract the runtime helpers", e);
+        }
+    }
+}
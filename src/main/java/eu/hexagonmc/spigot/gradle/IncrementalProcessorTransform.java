@@ -0,0 +1,140 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle;
+
+import com.google.common.io.ByteStreams;
+import eu.hexagonmc.spigot.annotation.AnnotationProcessor;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.transform.ArtifactTransform;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+public class IncrementalProcessorTransform extends ArtifactTransform {
+
+    public static final String ARTIFACT_TYPE = "incremental-processor-jar";
+
+    private static final String PROCESSORS_ENTRY = "META-INF/services/javax.annotation.processing.Processor";
+    private static final String INCREMENTAL_ENTRY = "META-INF/gradle/incremental.annotation.processors";
+    private static final String AGGREGATING = "aggregating";
+
+    /**
+     * Adds the incremental processor declaration to the spigot annotation
+     * processor jar. All other files are returned unchanged.
+     *
+     * @param input The file to transform
+     * @return The transformed files
+     */
+    @Override
+    public List<File> transform(File input) {
+        if (!input.isFile()) {
+            return Collections.singletonList(input);
+        }
+        try (ZipFile zip = new ZipFile(input)) {
+            if (zip.getEntry(INCREMENTAL_ENTRY) != null) {
+                return Collections.singletonList(input);
+            }
+            List<String> processors = readProcessors(zip);
+            if (!processors.contains(AnnotationProcessor.class.getName())) {
+                return Collections.singletonList(input);
+            }
+            File output = new File(getOutputDirectory(), input.getName());
+            write(zip, output, processors);
+            return Collections.singletonList(output);
+        } catch (IOException e) {
+            throw new GradleException("Could not transform " + input.getName(), e);
+        }
+    }
+
+    /**
+     * Reads the annotation processors declared in the given jar.
+     *
+     * @param zip The jar
+     * @return The class names of the declared processors
+     * @throws IOException If the jar could not be read
+     */
+    private static List<String> readProcessors(ZipFile zip) throws IOException {
+        List<String> processors = new ArrayList<>();
+        ZipEntry entry = zip.getEntry(PROCESSORS_ENTRY);
+        if (entry == null) {
+            return processors;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    processors.add(line);
+                }
+            }
+        }
+        return processors;
+    }
+
+    /**
+     * Copies the given jar and declares the given processors as aggregating.
+     *
+     * @param zip The jar to copy
+     * @param output The file to write
+     * @param processors The class names of the processors
+     * @throws IOException If the jar could not be copied
+     */
+    private static void write(ZipFile zip, File output, List<String> processors) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(output))) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                if (!entry.isDirectory()) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        ByteStreams.copy(in, out);
+                    }
+                }
+                out.closeEntry();
+            }
+            out.putNextEntry(new ZipEntry(INCREMENTAL_ENTRY));
+            StringBuilder declaration = new StringBuilder();
+            for (String processor : processors) {
+                declaration.append(processor).append(',').append(AGGREGATING).append('\n');
+            }
+            out.write(declaration.toString().getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle;
+
+import com.google.common.base.Joiner;
+import eu.hexagonmc.spigot.annotation.AnnotationProcessor;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.process.CommandLineArgumentProvider;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+public class MetadataArgumentProvider implements CommandLineArgumentProvider {
+
+    private final FileCollection _extraFilesSpigot;
+    private final FileCollection _extraFilesBungee;
+
+    /**
+     * Creates a new provider passing the given metadata files to the spigot
+     * annotation processor.
+     *
+     * @param extraFilesSpigot The spigot metadata files
+     * @param extraFilesBungee The bungee metadata files
+     */
+    public MetadataArgumentProvider(FileCollection extraFilesSpigot, FileCollection extraFilesBungee) {
+        _extraFilesSpigot = extraFilesSpigot;
+        _extraFilesBungee = extraFilesBungee;
+    }
+
+    /**
+     * Gets the spigot metadata files passed to the annotation processor.
+     *
+     * @return The files
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getExtraFilesSpigot() {
+        return _extraFilesSpigot;
+    }
+
+    /**
+     * Gets the bungee metadata files passed to the annotation processor.
+     *
+     * @return The files
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getExtraFilesBungee() {
+        return _extraFilesBungee;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public Iterable<String> asArguments() {
+        return Arrays.asList(
+                option(AnnotationProcessor.EXTRA_FILES_SPIGOT_OPTION, _extraFilesSpigot),
+                option(AnnotationProcessor.EXTRA_FILES_BUNGEE_OPTION, _extraFilesBungee));
+    }
+
+    /**
+     * Creates an annotation processor option listing the given files.
+     *
+     * @param name The name of the option
+     * @param files The files
+     * @return The option
+     */
+    private static String option(String name, FileCollection files) {
+        return "-A" + name + "=" + Joiner.on(';').join(files.getFiles().stream().map(File::toString).sorted().collect(Collectors.toList()));
+    }
+}
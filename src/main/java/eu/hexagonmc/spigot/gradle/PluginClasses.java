@@ -0,0 +1,318 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle;
+
+import com.google.common.io.ByteStreams;
+import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.runtime.ListenerIndex;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public final class PluginClasses {
+
+    public static final String CLASS_SUFFIX = ".class";
+    public static final String SERVICES = "META-INF/services/";
+    private static final List<String> ENTRY_POINTS = Arrays.asList(
+            "org/bukkit/event/Listener",
+            "org/bukkit/command/CommandExecutor",
+            "org/bukkit/command/TabCompleter",
+            "net/md_5/bungee/api/plugin/Listener",
+            "net/md_5/bungee/api/plugin/Command");
+
+    private final Map<String, ClassReferences> _classes = new LinkedHashMap<>();
+    private final Map<String, List<String>> _providers = new HashMap<>();
+    private final List<String> _mains = new ArrayList<>();
+
+    private PluginClasses() {
+    }
+
+    /**
+     * Reads the classes, service providers and main classes of a plugin jar.
+     *
+     * @param zip The plugin jar
+     * @param temporaryDir A directory to extract the metadata files to
+     * @return The {@link PluginClasses}
+     * @throws IOException If the jar could not be read
+     */
+    public static PluginClasses read(ZipFile zip, File temporaryDir) throws IOException {
+        PluginClasses classes = new PluginClasses();
+        for (ZipEntry entry : Collections.list(zip.entries())) {
+            String name = entry.getName();
+            if (isClass(name)) {
+                ClassReferences references = ClassReferences.scan(read(zip, entry));
+                classes._classes.put(references.getName(), references);
+            } else if (name.startsWith(SERVICES) && !entry.isDirectory()) {
+                classes._providers.put(toInternalName(name.substring(SERVICES.length())), readProviders(zip, entry));
+            } else if (name.equals(PluginYml.FILENAME_SPIGOT) || name.equals(PluginYml.FILENAME_BUNGEE)) {
+                Path file = new File(temporaryDir, name).toPath();
+                Files.write(file, read(zip, entry));
+                PluginMetadata meta = PluginYml.read(file);
+                if (meta != null && meta.getMain() != null) {
+                    classes._mains.add(toInternalName(meta.getMain()));
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Gets the number of classes in the plugin jar.
+     *
+     * @return The number of classes
+     */
+    public int size() {
+        return _classes.size();
+    }
+
+    /**
+     * Checks if the plugin jar contains the given class.
+     *
+     * @param name The internal name of the class
+     * @return True if the class is part of the jar false otherwise
+     */
+    public boolean contains(String name) {
+        return _classes.containsKey(name);
+    }
+
+    /**
+     * Collects all classes reachable from the main classes, listeners and
+     * command executors. Service providers are reachable once their service
+     * is and the generated event registrar of a listener once the listener
+     * is. String constants naming a class of the jar count as reference.
+     *
+     * @param keep The patterns of classes which are always reachable. A
+     *        pattern is a fully qualified class name in which {@code *}
+     *        matches within a package and {@code **} across packages.
+     * @return The internal names of the reachable classes in the order they
+     *         were found
+     */
+    public Set<String> reachable(List<String> keep) {
+        List<Pattern> patterns = keep.stream().map(PluginClasses::toPattern).collect(Collectors.toList());
+        Deque<String> queue = new ArrayDeque<>(_mains);
+        for (ClassReferences references : _classes.values()) {
+            String className = references.getName().replace('/', '.');
+            if (isEntryPoint(references) || patterns.stream().anyMatch(pattern -> pattern.matcher(className).matches())) {
+                queue.add(references.getName());
+            }
+        }
+        _providers.forEach((service, names) -> {
+            if (!_classes.containsKey(service)) {
+                queue.addAll(names);
+            }
+        });
+
+        Set<String> reachable = new LinkedHashSet<>();
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            ClassReferences references = _classes.get(name);
+            if (references == null || !reachable.add(name)) {
+                continue;
+            }
+            queue.addAll(references.getTypes());
+            for (String string : references.getStrings()) {
+                String candidate = toInternalName(string);
+                if (_classes.containsKey(candidate)) {
+                    queue.add(candidate);
+                }
+            }
+            queue.addAll(_providers.getOrDefault(name, Collections.emptyList()));
+            queue.add(name + ListenerIndex.REGISTRAR_SUFFIX);
+        }
+        return reachable;
+    }
+
+    /**
+     * Gets the classes the server loads first when enabling the plugin,
+     * which are the main classes, listeners and command executors together
+     * with their super classes and interfaces.
+     *
+     * @return The internal names of the classes in load order
+     */
+    public List<String> hotClasses() {
+        Deque<String> queue = new ArrayDeque<>(_mains);
+        for (ClassReferences references : _classes.values()) {
+            if (isEntryPoint(references)) {
+                queue.add(references.getName());
+            }
+        }
+        Set<String> hot = new LinkedHashSet<>();
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            ClassReferences references = _classes.get(name);
+            if (references == null || !hot.add(name)) {
+                continue;
+            }
+            if (references.getSuperName() != null) {
+                queue.add(references.getSuperName());
+            }
+            queue.addAll(references.getInterfaces());
+        }
+        return loadOrder(hot);
+    }
+
+    /**
+     * Sorts the given classes in the order a class loader defines them, so
+     * every super class and interface precedes its sub classes.
+     *
+     * @param names The internal names of the classes
+     * @return The sorted internal names
+     */
+    public List<String> loadOrder(Set<String> names) {
+        List<String> order = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        for (String name : names) {
+            Deque<String> stack = new ArrayDeque<>();
+            stack.push(name);
+            while (!stack.isEmpty()) {
+                String current = stack.peek();
+                ClassReferences references = _classes.get(current);
+                if (references == null || !names.contains(current) || visited.contains(current)) {
+                    stack.pop();
+                    continue;
+                }
+                boolean ready = true;
+                List<String> supers = new ArrayList<>(references.getInterfaces());
+                if (references.getSuperName() != null) {
+                    supers.add(0, references.getSuperName());
+                }
+                for (String parent : supers) {
+                    if (names.contains(parent) && !visited.contains(parent) && !stack.contains(parent)) {
+                        stack.push(parent);
+                        ready = false;
+                    }
+                }
+                if (ready) {
+                    stack.pop();
+                    visited.add(current);
+                    order.add(current);
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Checks if the given jar entry is a class of the plugin.
+     *
+     * @param name The name of the jar entry
+     * @return True if the entry is a class false otherwise
+     */
+    public static boolean isClass(String name) {
+        return name.endsWith(CLASS_SUFFIX) && !name.startsWith("META-INF/") && !name.equals("module-info.class");
+    }
+
+    /**
+     * Converts a fully qualified class name to an internal name.
+     *
+     * @param className The class name
+     * @return The internal name
+     */
+    public static String toInternalName(String className) {
+        return className.replace('.', '/');
+    }
+
+    /**
+     * Checks if the server may instantiate the given class without a
+     * reference from the plugin, which is the case for listeners and command
+     * executors.
+     *
+     * @param type The class
+     * @return True if the class is an entry point false otherwise
+     */
+    private boolean isEntryPoint(ClassReferences type) {
+        Deque<String> queue = new ArrayDeque<>();
+        Set<String> seen = new HashSet<>();
+        queue.add(type.getName());
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            if (ENTRY_POINTS.contains(name)) {
+                return true;
+            }
+            ClassReferences references = _classes.get(name);
+            if (references == null || !seen.add(name)) {
+                continue;
+            }
+            if (references.getSuperName() != null) {
+                queue.add(references.getSuperName());
+            }
+            queue.addAll(references.getInterfaces());
+        }
+        return false;
+    }
+
+    private static List<String> readProviders(ZipFile zip, ZipEntry entry) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .map(line -> line.replaceFirst("#.*", "").trim())
+                    .filter(line -> !line.isEmpty())
+                    .map(PluginClasses::toInternalName)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    private static Pattern toPattern(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' && i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^.]*");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
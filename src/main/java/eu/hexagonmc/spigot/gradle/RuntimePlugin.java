@@ -0,0 +1,97 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+
+public class RuntimePlugin implements Plugin<Project> {
+
+    public static final String TASK_NAME = "extractSpigotRuntime";
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        project.getPlugins().apply("java-base");
+
+        TaskProvider<ExtractRuntimeTask> extract = project.getTasks().register(TASK_NAME, ExtractRuntimeTask.class, task -> {
+            task.getPackageName().set(project.provider(() -> getDefaultPackage(project)));
+        });
+
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            JavaPluginConvention java = project.getConvention().getPlugin(JavaPluginConvention.class);
+            SourceSet main = java.getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            // The plugin sources compile against the helpers and the jar ships them
+            project.getDependencies().add(JavaPlugin.COMPILE_ONLY_CONFIGURATION_NAME, project.files((Callable<Object>) () -> {
+                ExtractRuntimeTask task = extract.get();
+                return task.hasHelpers() ? task.getOutputDir() : Collections.emptyList();
+            }).builtBy(extract));
+            main.getOutput().dir(Collections.singletonMap("builtBy", extract), (Callable<File>) () -> extract.get().getOutputDir());
+        });
+    }
+
+    /**
+     * Gets the package the runtime helpers of the given project are relocated
+     * to by default, {@code <group>.<name>.runtime}.
+     *
+     * @param project The project
+     * @return The package name
+     */
+    static String getDefaultPackage(Project project) {
+        StringJoiner packageName = new StringJoiner(".");
+        String group = project.getGroup().toString();
+        for (String part : (group.isEmpty() ? project.getName() : group + "." + project.getName()).split("\\.")) {
+            String identifier = part.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "_");
+            if (!identifier.isEmpty()) {
+                packageName.add(Character.isDigit(identifier.charAt(0)) ? "_" + identifier : identifier);
+            }
+        }
+        packageName.add("runtime");
+        return packageName.toString();
+    }
+
+    /**
+     * Gets the provider of the package the runtime helpers of the given
+     * project are relocated to.
+     *
+     * @param project The project
+     * @return The provider
+     */
+    public static Provider<String> getPackage(Project project) {
+        project.getPlugins().apply(RuntimePlugin.class);
+        return project.getTasks().withType(ExtractRuntimeTask.class).named(TASK_NAME).map(task -> task.getPackageName().get());
+    }
+}
@@ -22,63 +22,95 @@
  */
 package eu.hexagonmc.spigot.gradle;
 
-import com.google.common.base.Joiner;
-import eu.hexagonmc.spigot.annotation.AnnotationProcessor;
 import eu.hexagonmc.spigot.annotation.meta.PluginYml;
 import eu.hexagonmc.spigot.gradle.meta.GenerateMetadataTask;
 import eu.hexagonmc.spigot.gradle.meta.MetadataPlugin;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.attributes.Attribute;
 import org.gradle.api.file.CopySpec;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.util.GradleVersion;
 
-import java.nio.file.Path;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 public class SpigotAnnotationPlugin implements Plugin<Project> {
 
     private static final String PLUGIN_ANNOTATION_PROCESSOR = "eu.hxmc.spigot.annotation.AnnotationProcessor";
+    private static final Attribute<String> ARTIFACT_TYPE_ATTRIBUTE = Attribute.of("artifactType", String.class);
 
     @Override
     public void apply(Project project) {
         project.getPlugins().apply(MetadataPlugin.class);
 
-        final GenerateMetadataTask generateMetadata = (GenerateMetadataTask) project.getTasks().getByName("generateMetadata");
-        generateMetadata.setMergeMetadata(false);
+        TaskContainer tasks = project.getTasks();
+        final TaskProvider<GenerateMetadataTask> generateMetadataProvider = tasks.withType(GenerateMetadataTask.class)
+                .named(MetadataPlugin.TASK_NAME);
+        generateMetadataProvider.configure(task -> task.setMergeMetadata(false));
 
-        Task compileJava = project.getTasks().getByName("compileJava");
-        compileJava.getInputs().files(generateMetadata);
-        compileJava.doFirst(task -> {
-            JavaCompile javac = (JavaCompile) task;
-            List<String> args = javac.getOptions().getCompilerArgs();
+        tasks.withType(JavaCompile.class).named(JavaPlugin.COMPILE_JAVA_TASK_NAME).configure(compileJava -> {
+            GenerateMetadataTask generateMetadata = generateMetadataProvider.get();
+            FileCollection extraFilesSpigot = project.files(generateMetadata.getOuputFileSpigot(), generateMetadata.getMetadataFilesSpigot())
+                    .builtBy(generateMetadataProvider);
+            FileCollection extraFilesBungee = project.files(generateMetadata.getOuputFileBungee(), generateMetadata.getMetadataFilesBungee())
+                    .builtBy(generateMetadataProvider);
+            compileJava.getOptions().getCompilerArgumentProviders().add(new MetadataArgumentProvider(extraFilesSpigot, extraFilesBungee));
+        });
 
-            int pos = args.indexOf("-processor");
-            if (pos >= 0) {
-                args.set(pos + 1, args.get(pos + 1) + "," + PLUGIN_ANNOTATION_PROCESSOR);
-            }
+        project.afterEvaluate(evaluated -> {
+            tasks.withType(JavaCompile.class).named(JavaPlugin.COMPILE_JAVA_TASK_NAME).configure(compileJava -> {
+                List<String> args = compileJava.getOptions().getCompilerArgs();
+                int pos = args.indexOf("-processor");
+                if (pos >= 0) {
+                    args.set(pos + 1, args.get(pos + 1) + "," + PLUGIN_ANNOTATION_PROCESSOR);
+                }
+            });
+        });
 
-            Path targetSpigot = generateMetadata.getTargetSpigot();
-            Path targetBungee = generateMetadata.getTargetBungee();
+        tasks.named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME).configure(processResources -> {
+            CopySpec processResourcesCopySepc = (CopySpec) processResources;
+            processResourcesCopySepc.exclude(PluginYml.FILENAME_SPIGOT);
+            processResourcesCopySepc.exclude(PluginYml.FILENAME_BUNGEE);
+        });
 
-            Set<String> extraFilesSpigot = new HashSet<>();
-            extraFilesSpigot.add(targetSpigot.toString());
-            extraFilesSpigot.addAll(generateMetadata.getMetadataFilesSpigot().stream().map(Path::toString).collect(Collectors.toSet()));
+        applyIncrementalProcessing(project);
+    }
 
-            Set<String> extraFilesBungee = new HashSet<>();
-            extraFilesBungee.add(targetBungee.toString());
-            extraFilesBungee.addAll(generateMetadata.getMetadataFilesBungee().stream().map(Path::toString).collect(Collectors.toSet()));
+    /**
+     * Declares the spigot annotation processor as aggregating incremental
+     * processor by transforming the annotation processor path of the main
+     * source set with {@link IncrementalProcessorTransform}.
+     *
+     * @param project The project
+     */
+    private void applyIncrementalProcessing(Project project) {
+        boolean incrementalProcessingAvailable =
+                GradleVersion.version(project.getGradle().getGradleVersion()).compareTo(GradleVersion.version("4.7")) >= 0;
+        if (!incrementalProcessingAvailable) {
+            return;
+        }
 
-            args.add("-A" + AnnotationProcessor.EXTRA_FILES_SPIGOT_OPTION + "=" + Joiner.on(';').skipNulls().join(extraFilesSpigot));
-            args.add("-A" + AnnotationProcessor.EXTRA_FILES_BUNGEE_OPTION + "=" + Joiner.on(';').skipNulls().join(extraFilesBungee));
+        project.getDependencies().registerTransform(transform -> {
+            transform.getFrom().attribute(ARTIFACT_TYPE_ATTRIBUTE, "jar");
+            transform.getTo().attribute(ARTIFACT_TYPE_ATTRIBUTE, IncrementalProcessorTransform.ARTIFACT_TYPE);
+            transform.artifactTransform(IncrementalProcessorTransform.class);
         });
 
-        Task processResources = project.getTasks().getByName("processResources");
-        CopySpec processResourcesCopySepc = (CopySpec) processResources;
-        processResourcesCopySepc.exclude(PluginYml.FILENAME_SPIGOT);
-        processResourcesCopySepc.exclude(PluginYml.FILENAME_BUNGEE);
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            Configuration processors = project.getConfigurations().getByName(JavaPlugin.ANNOTATION_PROCESSOR_CONFIGURATION_NAME);
+            FileCollection processorPath = processors.getIncoming()
+                    .artifactView(view -> view.attributes(attributes -> {
+                        attributes.attribute(ARTIFACT_TYPE_ATTRIBUTE, IncrementalProcessorTransform.ARTIFACT_TYPE);
+                    }))
+                    .getFiles();
+            project.getTasks().withType(JavaCompile.class).named(JavaPlugin.COMPILE_JAVA_TASK_NAME).configure(javac -> {
+                javac.getOptions().setAnnotationProcessorPath(processorPath);
+            });
+        });
     }
 }
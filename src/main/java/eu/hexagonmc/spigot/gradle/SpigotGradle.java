@@ -26,14 +26,23 @@ import eu.hexagonmc.spigot.annotation.meta.DependencyType;
 import eu.hexagonmc.spigot.annotation.meta.LoadOn;
 import eu.hexagonmc.spigot.annotation.meta.PermissionDefault;
 import groovy.lang.Closure;
+import org.gradle.api.GradleException;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Comparator;
 import java.util.List;
 import java.util.jar.Attributes.Name;
 import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class SpigotGradle {
 
@@ -163,23 +172,79 @@ public class SpigotGradle {
     }
 
     /**
-     * Gets the {@link Manifest} of the current jar.
+     * Deletes the contents of the given directory. The directory is created
+     * if it does not exist.
      *
-     * @return The {@link Manifest}
+     * @param directory The directory to clean
+     * @throws IOException If a file could not be deleted
+     */
+    public static void cleanDirectory(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    if (!file.equals(directory)) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Gets the jar or classes directory this plugin is loaded from. It is
+     * used as classpath of the launchers started in a separate JVM.
+     *
+     * @return The location
+     */
+    public static File getLocation() {
+        try {
+            return new File(SpigotGradle.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new GradleException("Could not locate the Spigot-Gradle plugin", e);
+        }
+    }
+
+    /**
+     * Gets the {@link Manifest} of the current jar. The manifest is looked up
+     * once per class loader and cached afterwards.
+     *
+     * @return The {@link Manifest} or null if not available
      */
     public static Manifest getManifest() {
+        return ManifestHolder.MANIFEST;
+    }
+
+    /**
+     * Loads the {@link Manifest} of the jar containing this class.
+     *
+     * @return The {@link Manifest} or null if not available
+     */
+    private static Manifest loadManifest() {
+        String classFile = SpigotGradle.class.getName().replace('.', '/') + ".class";
+        URL classUrl = SpigotGradle.class.getClassLoader().getResource(classFile);
+        if (classUrl == null) {
+            return null;
+        }
+        String location = classUrl.toString();
+        location = location.substring(0, location.length() - classFile.length());
         try {
-            Enumeration<URL> resources = SpigotGradle.class.getClassLoader().getResources("META-INF/MANIFEST.MF");
-            while (resources.hasMoreElements()) {
-                Manifest manifest = new Manifest(resources.nextElement().openStream());
-                if (manifest.getMainAttributes().containsKey(Name.IMPLEMENTATION_TITLE)
-                        && manifest.getMainAttributes().getValue(Name.IMPLEMENTATION_TITLE).equals("Spigot-Gradle")) {
+            URLConnection connection = new URL(location + "META-INF/MANIFEST.MF").openConnection();
+            connection.setUseCaches(false);
+            try (InputStream stream = connection.getInputStream()) {
+                Manifest manifest = new Manifest(stream);
+                if ("Spigot-Gradle".equals(manifest.getMainAttributes().getValue(Name.IMPLEMENTATION_TITLE))) {
                     return manifest;
                 }
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            // Not loaded from the plugin jar
         }
         return null;
     }
+
+    private static class ManifestHolder {
+
+        private static final Manifest MANIFEST = loadManifest();
+    }
 }
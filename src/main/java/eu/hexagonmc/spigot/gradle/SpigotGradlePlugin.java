@@ -23,7 +23,14 @@
 package eu.hexagonmc.spigot.gradle;
 
 import com.google.common.base.Strings;
+import eu.hexagonmc.spigot.gradle.cds.ClassDataSharingPlugin;
+import eu.hexagonmc.spigot.gradle.layout.PluginJarLayoutPlugin;
+import eu.hexagonmc.spigot.gradle.library.LibraryPlugin;
 import eu.hexagonmc.spigot.gradle.meta.MetadataPlugin;
+import eu.hexagonmc.spigot.gradle.minimize.MinimizePlugin;
+import eu.hexagonmc.spigot.gradle.probe.LatencyProbesPlugin;
+import eu.hexagonmc.spigot.gradle.relocate.RelocationPlugin;
+import eu.hexagonmc.spigot.gradle.server.RunServerPlugin;
 import groovy.json.JsonSlurper;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Plugin;
@@ -31,6 +38,7 @@ import org.gradle.api.Project;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.artifacts.dsl.RepositoryHandler;
 import org.gradle.api.logging.Logger;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.api.plugins.PluginContainer;
@@ -45,64 +53,75 @@ import java.util.jar.Manifest;
 
 public class SpigotGradlePlugin implements Plugin<Project> {
 
-    private Project _project;
-    private static boolean _once = false;
+    public static final String BANNER_PROPERTY = "spigotGradleBanner";
+    private static final String BANNER_PRINTED_PROPERTY = "spigotGradleBannerPrinted";
 
     @Override
     public void apply(Project project) {
-        _project = project;
-        applyPlugins();
+        applyPlugins(project);
 
-        applyJava8();
+        applyJava8(project);
 
-        addRepositoryAndDependency();
+        addRepositoryAndDependency(project);
 
-        applyCustomPlugins();
+        applyCustomPlugins(project);
 
-        applyAfterEvaluate();
+        applyAfterEvaluate(project);
     }
 
-    private void applyPlugins() {
-        PluginContainer plugins = _project.getPlugins();
+    private void applyPlugins(Project project) {
+        PluginContainer plugins = project.getPlugins();
         plugins.apply(JavaPlugin.class);
         plugins.apply(EclipsePlugin.class);
         plugins.apply(IdeaPlugin.class);
     }
 
-    private void applyJava8() {
-        JavaPluginConvention pluginConvention = _project.getConvention().getPlugin(JavaPluginConvention.class);
+    private void applyJava8(Project project) {
+        JavaPluginConvention pluginConvention = project.getConvention().getPlugin(JavaPluginConvention.class);
         pluginConvention.setSourceCompatibility(JavaVersion.VERSION_1_8);
         pluginConvention.setTargetCompatibility(JavaVersion.VERSION_1_8);
     }
 
-    private void addRepositoryAndDependency() {
-        RepositoryHandler repositories = _project.getRepositories();
+    private void addRepositoryAndDependency(Project project) {
+        RepositoryHandler repositories = project.getRepositories();
         repositories.add(repositories.jcenter());
 
-        DependencyHandler dependencies = _project.getDependencies();
+        DependencyHandler dependencies = project.getDependencies();
         dependencies.add(JavaPlugin.COMPILE_ONLY_CONFIGURATION_NAME, "eu.hexagonmc:spigot-annotations:1.2");
 
         boolean annotationProcessorConfigurationAvailable =
-                GradleVersion.version(_project.getGradle().getGradleVersion()).compareTo(GradleVersion.version("4.6")) >= 0;
+                GradleVersion.version(project.getGradle().getGradleVersion()).compareTo(GradleVersion.version("4.6")) >= 0;
         if (annotationProcessorConfigurationAvailable) {
             dependencies.add(JavaPlugin.ANNOTATION_PROCESSOR_CONFIGURATION_NAME, "eu.hexagonmc:spigot-annotations:1.2");
         }
     }
 
-    private void applyCustomPlugins() {
-        PluginContainer plugins = _project.getPlugins();
+    private void applyCustomPlugins(Project project) {
+        PluginContainer plugins = project.getPlugins();
         plugins.getPlugin(IdeaPlugin.class).getModel().getModule().setInheritOutputDirs(true);
 
         plugins.apply(MetadataPlugin.class);
         plugins.apply(SpigotAnnotationPlugin.class);
+        plugins.apply(MinimizePlugin.class);
+        plugins.apply(ClassDataSharingPlugin.class);
+        plugins.apply(RunServerPlugin.class);
+        plugins.apply(PluginJarLayoutPlugin.class);
+        plugins.apply(RelocationPlugin.class);
+        plugins.apply(LibraryPlugin.class);
+        plugins.apply(LatencyProbesPlugin.class);
     }
 
-    private void applyAfterEvaluate() {
-        if (_once) {
+    private void applyAfterEvaluate(Project project) {
+        if (!Boolean.parseBoolean(String.valueOf(project.findProperty(BANNER_PROPERTY)))) {
             return;
         }
-        _project.afterEvaluate(project -> {
-            Logger logger = project.getLogger();
+        ExtraPropertiesExtension rootProperties = project.getRootProject().getExtensions().getExtraProperties();
+        if (rootProperties.has(BANNER_PRINTED_PROPERTY)) {
+            return;
+        }
+        rootProperties.set(BANNER_PRINTED_PROPERTY, true);
+        project.afterEvaluate(evaluated -> {
+            Logger logger = evaluated.getLogger();
             Package pck = getClass().getPackage();
             int size = 98;
             logger.lifecycle("#{}#", formatCenterString("#", '#', size));
@@ -137,7 +156,6 @@ public class SpigotGradlePlugin implements Plugin<Project> {
             logger.lifecycle("#{}#", formatCenterString(" ", ' ', size));
             logger.lifecycle("#{}#", formatCenterString("#", '#', size));
         });
-        _once = true;
     }
 
     private String formatCenterString(String content, char filler, int length) {
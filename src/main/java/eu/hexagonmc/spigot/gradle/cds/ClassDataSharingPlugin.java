@@ -0,0 +1,83 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.cds;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.Jar;
+
+public class ClassDataSharingPlugin implements Plugin<Project> {
+
+    public static final String CLASS_LIST_TASK_NAME = "generateClassList";
+    public static final String DUMP_TASK_NAME = "dumpClassDataArchive";
+    public static final String MEASURE_TASK_NAME = "measureClassDataArchive";
+    private static final String OUTPUT_DIR = "cds/";
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            TaskContainer tasks = project.getTasks();
+            JavaPluginConvention java = project.getConvention().getPlugin(JavaPluginConvention.class);
+            SourceSet main = java.getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            TaskProvider<Jar> jar = tasks.withType(Jar.class).named(JavaPlugin.JAR_TASK_NAME);
+            DirectoryProperty buildDir = project.getLayout().getBuildDirectory();
+            Provider<RegularFile> pluginJar = project.getLayout().file(jar.map(Jar::getArchivePath));
+            Provider<String> baseName = jar.map(task -> OUTPUT_DIR + task.getArchiveName().replaceFirst("\\.jar$", ""));
+
+            TaskProvider<GenerateClassListTask> classList = tasks.register(CLASS_LIST_TASK_NAME, GenerateClassListTask.class, task -> {
+                task.dependsOn(jar);
+                task.getInputJar().set(pluginJar);
+                task.getClassList().set(buildDir.file(baseName.map(name -> name + ".classlist")));
+            });
+
+            TaskProvider<DumpClassDataArchiveTask> dump = tasks.register(DUMP_TASK_NAME, DumpClassDataArchiveTask.class, task -> {
+                configure(task, classList, pluginJar, main);
+                task.getArchive().set(buildDir.file(baseName.map(name -> name + ".jsa")));
+            });
+            tasks.register(MEASURE_TASK_NAME, MeasureClassDataArchiveTask.class, task -> {
+                configure(task, classList, pluginJar, main);
+                task.dependsOn(dump);
+                task.getArchive().set(dump.map(dumpTask -> dumpTask.getArchive().get()));
+            });
+        });
+    }
+
+    private static void configure(ClassListLauncherTask task, TaskProvider<GenerateClassListTask> classList, Provider<RegularFile> pluginJar,
+            SourceSet main) {
+        task.dependsOn(classList);
+        task.getClassList().set(classList.map(classListTask -> classListTask.getClassList().get()));
+        task.getPluginJar().set(pluginJar);
+        task.getClasspath().from(main.getCompileClasspath());
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.cds;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ClassListLauncher {
+
+    public static final String RESULT_PREFIX = "Loaded classes: ";
+    // Classes of unloaded class loaders are not archived at exit
+    private static final List<ClassLoader> LOADERS = new ArrayList<>();
+
+    private ClassListLauncher() {
+    }
+
+    /**
+     * Loads all classes of a class list through a plugin class loader, like
+     * a server does when a plugin is enabled, and prints the number of
+     * loaded classes and the elapsed nanoseconds.
+     *
+     * @param args The class list followed by the plugin jar and its
+     *        compile classpath
+     * @throws Exception If the class list could not be read
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> names = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+        URL[] urls = new URL[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            urls[i - 1] = Paths.get(args[i]).toUri().toURL();
+        }
+        int loaded = 0;
+        long start = System.nanoTime();
+        URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+        LOADERS.add(loader);
+        for (String name : names) {
+            try {
+                Class.forName(name.replace('/', '.'), false, loader);
+                loaded++;
+            } catch (ClassNotFoundException | LinkageError e) {
+                System.err.println("Could not load " + name + ": " + e);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(RESULT_PREFIX + loaded + " " + elapsed);
+    }
+}
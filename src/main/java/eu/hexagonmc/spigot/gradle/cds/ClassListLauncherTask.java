@@ -0,0 +1,138 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.cds;
+
+import eu.hexagonmc.spigot.gradle.SpigotGradle;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class ClassListLauncherTask extends DefaultTask {
+
+    private final RegularFileProperty _classList;
+    private final RegularFileProperty _pluginJar;
+    private final ConfigurableFileCollection _classpath;
+    private final Property<String> _executable;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public ClassListLauncherTask() {
+        _classList = getProject().getLayout().fileProperty();
+        _pluginJar = getProject().getLayout().fileProperty();
+        _classpath = getProject().getLayout().configurableFiles();
+        _executable = getProject().getObjects().property(String.class);
+    }
+
+    /**
+     * Gets the property holding the class list generated by
+     * {@link GenerateClassListTask}.
+     *
+     * @return The property
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getClassList() {
+        return _classList;
+    }
+
+    /**
+     * Gets the property holding the plugin jar.
+     *
+     * @return The property
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getPluginJar() {
+        return _pluginJar;
+    }
+
+    /**
+     * Gets the classpath of the plugin, which the server would provide.
+     *
+     * @return The classpath
+     */
+    @Classpath
+    public ConfigurableFileCollection getClasspath() {
+        return _classpath;
+    }
+
+    /**
+     * Gets the property holding the java executable to launch. Defaults to
+     * the java executable running Gradle.
+     *
+     * @return The property
+     */
+    @Input
+    @Optional
+    public Property<String> getExecutable() {
+        return _executable;
+    }
+
+    /**
+     * Launches the {@link ClassListLauncher} with the given JVM arguments.
+     *
+     * @param jvmArgs The JVM arguments
+     * @return The number of loaded classes, the nanoseconds spent loading
+     *         them and the nanoseconds the JVM ran
+     */
+    protected long[] launch(List<String> jvmArgs) {
+        List<Object> args = new ArrayList<>();
+        args.add(_classList.get().getAsFile());
+        args.add(_pluginJar.get().getAsFile());
+        args.addAll(_classpath.getFiles());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        getProject().javaexec(spec -> {
+            if (_executable.isPresent()) {
+                spec.setExecutable(_executable.get());
+            }
+            spec.setClasspath(getProject().files(SpigotGradle.getLocation()));
+            spec.setMain(ClassListLauncher.class.getName());
+            spec.setJvmArgs(jvmArgs);
+            spec.setArgs(args);
+            spec.setStandardOutput(output);
+        });
+        long elapsed = System.nanoTime() - start;
+        for (String line : new String(output.toByteArray(), StandardCharsets.UTF_8).split("\\R")) {
+            if (line.startsWith(ClassListLauncher.RESULT_PREFIX)) {
+                String[] result = line.substring(ClassListLauncher.RESULT_PREFIX.length()).split(" ");
+                return new long[] {Long.parseLong(result[0]), Long.parseLong(result[1]), elapsed};
+            }
+        }
+        throw new GradleException("The class list launcher did not report a result");
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.cds;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+public class DumpClassDataArchiveTask extends ClassListLauncherTask {
+
+    private final RegularFileProperty _archive;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public DumpClassDataArchiveTask() {
+        _archive = getProject().getLayout().fileProperty();
+    }
+
+    /**
+     * Gets the property holding the dynamic class data sharing archive.
+     *
+     * @return The property
+     */
+    @OutputFile
+    public RegularFileProperty getArchive() {
+        return _archive;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void dump() {
+        File archive = _archive.get().getAsFile();
+        try {
+            Files.deleteIfExists(archive.toPath());
+            Files.createDirectories(archive.getParentFile().toPath());
+        } catch (IOException e) {
+            throw new GradleException("Could not prepare the class data sharing archive " + archive, e);
+        }
+        long[] result = launch(Collections.singletonList("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath()));
+        if (!archive.isFile()) {
+            throw new GradleException("The class data sharing archive was not created, dynamic archives require Java 13 or newer");
+        }
+        getLogger().lifecycle("Archived {} classes to {}", result[0], archive.getName());
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.cds;
+
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+@CacheableTask
+public class GenerateClassListTask extends DefaultTask {
+
+    private final RegularFileProperty _inputJar;
+    private final RegularFileProperty _classList;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public GenerateClassListTask() {
+        _inputJar = getProject().getLayout().fileProperty();
+        _classList = getProject().getLayout().fileProperty();
+    }
+
+    /**
+     * Gets the property holding the plugin jar.
+     *
+     * @return The property
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getInputJar() {
+        return _inputJar;
+    }
+
+    /**
+     * Gets the property holding the generated class list. It contains the
+     * internal names of all classes reachable from the entry points of the
+     * plugin in the order they are defined.
+     *
+     * @return The property
+     */
+    @OutputFile
+    public RegularFileProperty getClassList() {
+        return _classList;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void generate() {
+        File input = _inputJar.get().getAsFile();
+        File output = _classList.get().getAsFile();
+        try (ZipFile zip = new ZipFile(input)) {
+            PluginClasses classes = PluginClasses.read(zip, getTemporaryDir());
+            List<String> order = classes.loadOrder(classes.reachable(Collections.emptyList()));
+            Files.createDirectories(output.getParentFile().toPath());
+            Files.write(output.toPath(), order, StandardCharsets.UTF_8);
+            getLogger().info("Wrote {} of {} classes to the class list of {}", order.size(), classes.size(), input.getName());
+        } catch (IOException e) {
+            throw new GradleException("Could not generate the class list of " + input, e);
+        }
+    }
+}
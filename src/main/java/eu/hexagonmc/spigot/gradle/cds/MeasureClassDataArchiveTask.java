@@ -0,0 +1,105 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.cds;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class MeasureClassDataArchiveTask extends ClassListLauncherTask {
+
+    private final RegularFileProperty _archive;
+    private final Property<Integer> _runs;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public MeasureClassDataArchiveTask() {
+        _archive = getProject().getLayout().fileProperty();
+        _runs = getProject().getObjects().property(Integer.class);
+        _runs.set(5);
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /**
+     * Gets the property holding the dynamic class data sharing archive to
+     * measure.
+     *
+     * @return The property
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getArchive() {
+        return _archive;
+    }
+
+    /**
+     * Gets the property holding the number of runs with and without the
+     * archive. The median of the runs is reported.
+     *
+     * @return The property
+     */
+    @Input
+    public Property<Integer> getRuns() {
+        return _runs;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void measure() {
+        int runs = Math.max(1, _runs.get());
+        long[] loadWithout = new long[runs];
+        long[] jvmWithout = new long[runs];
+        long[] loadWith = new long[runs];
+        long[] jvmWith = new long[runs];
+        long classes = 0;
+        for (int i = 0; i < runs; i++) {
+            // Alternate the runs so both see the same disk and CPU conditions
+            long[] without = launch(Collections.emptyList());
+            long[] with = launch(Collections.singletonList("-XX:SharedArchiveFile=" + _archive.get().getAsFile().getAbsolutePath()));
+            classes = without[0];
+            loadWithout[i] = without[1];
+            jvmWithout[i] = without[2];
+            loadWith[i] = with[1];
+            jvmWith[i] = with[2];
+        }
+        getLogger().lifecycle("Loading {} classes without archive: {} ms (JVM {} ms), with archive: {} ms (JVM {} ms), median of {} runs",
+                classes, millis(loadWithout), millis(jvmWithout), millis(loadWith), millis(jvmWith), runs);
+    }
+
+    private static long millis(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length / 2]);
+    }
+}
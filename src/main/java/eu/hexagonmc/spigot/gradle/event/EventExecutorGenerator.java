@@ -0,0 +1,150 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.event;
+
+import eu.hexagonmc.spigot.gradle.event.ListenerScanner.MethodInfo;
+import eu.hexagonmc.spigot.gradle.runtime.ListenerRegistrar;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.List;
+
+final class EventExecutorGenerator implements Opcodes {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String LISTENER = "org/bukkit/event/Listener";
+    private static final String EVENT = "org/bukkit/event/Event";
+    private static final String EVENT_PRIORITY = "org/bukkit/event/EventPriority";
+    private static final String EVENT_EXECUTOR = "org/bukkit/plugin/EventExecutor";
+    private static final String EVENT_EXCEPTION = "org/bukkit/event/EventException";
+    private static final String PLUGIN = "org/bukkit/plugin/Plugin";
+    private static final String SERVER = "org/bukkit/Server";
+    private static final String PLUGIN_MANAGER = "org/bukkit/plugin/PluginManager";
+
+    private EventExecutorGenerator() {
+    }
+
+    /**
+     * Generates an EventExecutor which invokes the given handler directly
+     * instead of using reflection. Like the reflective executor of the server
+     * events of other types are skipped.
+     *
+     * @param name The internal name of the executor
+     * @param listener The internal name of the listener
+     * @param handler The handler
+     * @return The class file of the executor
+     */
+    static byte[] executor(String name, String listener, MethodInfo handler) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, name, null, OBJECT, new String[] {EVENT_EXECUTOR});
+        constructor(writer);
+
+        Type event = Type.getArgumentTypes(handler.getDescriptor())[0];
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "execute", "(L" + LISTENER + ";L" + EVENT + ";)V", null,
+                new String[] {EVENT_EXCEPTION});
+        method.visitCode();
+        Label skip = new Label();
+        method.visitLdcInsn(event);
+        method.visitVarInsn(ALOAD, 2);
+        method.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Class", "isInstance", "(Ljava/lang/Object;)Z", false);
+        method.visitJumpInsn(IFEQ, skip);
+        method.visitVarInsn(ALOAD, 1);
+        method.visitTypeInsn(CHECKCAST, listener);
+        method.visitVarInsn(ALOAD, 2);
+        method.visitTypeInsn(CHECKCAST, event.getInternalName());
+        method.visitMethodInsn(INVOKEVIRTUAL, listener, handler.getName(), handler.getDescriptor(), false);
+        int returnSize = Type.getReturnType(handler.getDescriptor()).getSize();
+        if (returnSize == 1) {
+            method.visitInsn(POP);
+        } else if (returnSize == 2) {
+            method.visitInsn(POP2);
+        }
+        method.visitLabel(skip);
+        method.visitFrame(F_SAME, 0, null, 0, null);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Generates an {@link ListenerRegistrar} which registers all handlers of
+     * a listener with their generated executors.
+     *
+     * @param name The internal name of the registrar
+     * @param registrar The internal name of the relocated {@link ListenerRegistrar}
+     * @param handlers The handlers
+     * @param executors The internal names of the executors of the handlers
+     * @return The class file of the registrar
+     */
+    static byte[] registrar(String name, String registrar, List<MethodInfo> handlers, List<String> executors) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, name, null, OBJECT, new String[] {registrar});
+        constructor(writer);
+
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "register", "(Ljava/lang/Object;Ljava/lang/Object;)V", null, null);
+        method.visitCode();
+        method.visitVarInsn(ALOAD, 2);
+        method.visitTypeInsn(CHECKCAST, PLUGIN);
+        method.visitMethodInsn(INVOKEINTERFACE, PLUGIN, "getServer", "()L" + SERVER + ";", true);
+        method.visitMethodInsn(INVOKEINTERFACE, SERVER, "getPluginManager", "()L" + PLUGIN_MANAGER + ";", true);
+        method.visitVarInsn(ASTORE, 3);
+        for (int i = 0; i < handlers.size(); i++) {
+            MethodInfo handler = handlers.get(i);
+            method.visitVarInsn(ALOAD, 3);
+            method.visitLdcInsn(Type.getArgumentTypes(handler.getDescriptor())[0]);
+            method.visitVarInsn(ALOAD, 1);
+            method.visitTypeInsn(CHECKCAST, LISTENER);
+            method.visitFieldInsn(GETSTATIC, EVENT_PRIORITY, handler.getPriority(), "L" + EVENT_PRIORITY + ";");
+            method.visitTypeInsn(NEW, executors.get(i));
+            method.visitInsn(DUP);
+            method.visitMethodInsn(INVOKESPECIAL, executors.get(i), "<init>", "()V", false);
+            method.visitVarInsn(ALOAD, 2);
+            method.visitTypeInsn(CHECKCAST, PLUGIN);
+            method.visitInsn(handler.isIgnoreCancelled() ? ICONST_1 : ICONST_0);
+            method.visitMethodInsn(INVOKEINTERFACE, PLUGIN_MANAGER, "registerEvent",
+                    "(Ljava/lang/Class;L" + LISTENER + ";L" + EVENT_PRIORITY + ";L" + EVENT_EXECUTOR + ";L" + PLUGIN + ";Z)V", true);
+        }
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void constructor(ClassWriter writer) {
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        method.visitCode();
+        method.visitVarInsn(ALOAD, 0);
+        method.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.event;
+
+import eu.hexagonmc.spigot.gradle.ExtractRuntimeTask;
+import eu.hexagonmc.spigot.gradle.RuntimePlugin;
+import eu.hexagonmc.spigot.gradle.runtime.ListenerIndex;
+import eu.hexagonmc.spigot.gradle.runtime.ListenerRegistrar;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+public class EventExecutorPlugin implements Plugin<Project> {
+
+    public static final String TASK_NAME = "generateEventExecutors";
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        project.getPlugins().apply("java-base");
+        project.getPlugins().apply(RuntimePlugin.class);
+
+        TaskContainer tasks = project.getTasks();
+        TaskProvider<GenerateEventExecutorsTask> generate = tasks.register(TASK_NAME, GenerateEventExecutorsTask.class);
+
+        tasks.withType(ExtractRuntimeTask.class).named(RuntimePlugin.TASK_NAME).configure(task -> {
+            task.getHelpers().addAll(ListenerIndex.class.getName(), ListenerRegistrar.class.getName());
+        });
+
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            JavaPluginConvention java = project.getConvention().getPlugin(JavaPluginConvention.class);
+            SourceSet main = java.getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            generate.configure(task -> {
+                task.getRuntimePackage().set(RuntimePlugin.getPackage(project));
+                task.getClasspath().from(main.getCompileClasspath());
+                task.getClassesDirs().from(project.files((Callable<File>) () -> main.getJava().getOutputDir())
+                        .builtBy(tasks.named(JavaPlugin.COMPILE_JAVA_TASK_NAME)));
+            });
+            main.getOutput().dir(Collections.singletonMap("builtBy", generate), (Callable<File>) () -> generate.get().getOutputDir());
+        });
+    }
+}
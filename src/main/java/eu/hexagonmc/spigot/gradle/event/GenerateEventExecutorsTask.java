@@ -0,0 +1,184 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.event;
+
+import eu.hexagonmc.spigot.gradle.ExtractRuntimeTask;
+import eu.hexagonmc.spigot.gradle.SpigotGradle;
+import eu.hexagonmc.spigot.gradle.event.ListenerScanner.ClassInfo;
+import eu.hexagonmc.spigot.gradle.event.ListenerScanner.MethodInfo;
+import eu.hexagonmc.spigot.gradle.runtime.ListenerIndex;
+import eu.hexagonmc.spigot.gradle.runtime.ListenerRegistrar;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+@CacheableTask
+public class GenerateEventExecutorsTask extends DefaultTask {
+
+    private static final String EXECUTOR_SUFFIX = "$EventExecutor";
+
+    private final ConfigurableFileCollection _classesDirs;
+    private final ConfigurableFileCollection _classpath;
+    private final Property<String> _runtimePackage;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public GenerateEventExecutorsTask() {
+        _classesDirs = getProject().getLayout().configurableFiles();
+        _classpath = getProject().getLayout().configurableFiles();
+        _runtimePackage = getProject().getObjects().property(String.class);
+    }
+
+    /**
+     * Gets the directories of the compiled classes to scan for listeners.
+     *
+     * @return The directories
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public ConfigurableFileCollection getClassesDirs() {
+        return _classesDirs;
+    }
+
+    /**
+     * Gets the compile classpath the event types of the handlers are
+     * resolved from.
+     *
+     * @return The classpath
+     */
+    @Classpath
+    public ConfigurableFileCollection getClasspath() {
+        return _classpath;
+    }
+
+    /**
+     * Gets the property holding the package the runtime helpers are
+     * relocated to. The generated registrars implement the relocated
+     * {@link ListenerRegistrar}.
+     *
+     * @return The property
+     */
+    @Input
+    public Property<String> getRuntimePackage() {
+        return _runtimePackage;
+    }
+
+    /**
+     * Gets the output directory of the generated classes.
+     *
+     * @return The output directory
+     */
+    @OutputDirectory
+    public File getOutputDir() {
+        return new File(getTemporaryDir(), "classes");
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void generate() {
+        Path outputDir = getOutputDir().toPath();
+        try {
+            SpigotGradle.cleanDirectory(outputDir);
+            String registrarInterface = ExtractRuntimeTask.getInternalName(ListenerRegistrar.class, _runtimePackage.get());
+            Map<String, ClassInfo> classes = new TreeMap<>();
+            for (File file : _classesDirs.getAsFileTree().matching(filterable -> filterable.include("**/*.class")).getFiles()) {
+                try (InputStream input = Files.newInputStream(file.toPath())) {
+                    ClassInfo info = ListenerScanner.scan(input);
+                    classes.put(info.getName(), info);
+                }
+            }
+            int listeners = 0;
+            Map<String, ClassInfo> external = new HashMap<>();
+            try (URLClassLoader classpath = new URLClassLoader(toUrls(_classpath.getFiles()), null)) {
+                for (ClassInfo info : classes.values()) {
+                    List<MethodInfo> handlers = ListenerScanner.handlers(info, classes, name -> resolve(classpath, name, external));
+                    if (handlers == null || handlers.isEmpty()) {
+                        continue;
+                    }
+                    List<String> executors = new ArrayList<>();
+                    for (MethodInfo handler : handlers) {
+                        String executor = info.getName() + EXECUTOR_SUFFIX + executors.size();
+                        write(outputDir, executor, EventExecutorGenerator.executor(executor, info.getName(), handler));
+                        executors.add(executor);
+                    }
+                    String registrar = info.getName() + ListenerIndex.REGISTRAR_SUFFIX;
+                    write(outputDir, registrar, EventExecutorGenerator.registrar(registrar, registrarInterface, handlers, executors));
+                    listeners++;
+                }
+            }
+            getLogger().info("Generated event executors for {} listeners", listeners);
+        } catch (IOException e) {
+            throw new GradleException("Could not generate the event executors", e);
+        }
+    }
+
+    private static URL[] toUrls(Set<File> files) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (File file : files) {
+            urls.add(file.toURI().toURL());
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    private static ClassInfo resolve(ClassLoader classpath, String name, Map<String, ClassInfo> external) {
+        return external.computeIfAbsent(name, key -> {
+            try (InputStream input = classpath.getResourceAsStream(key + ".class")) {
+                return input == null ? null : ListenerScanner.scan(input);
+            } catch (IOException e) {
+                throw new GradleException("Could not read " + key, e);
+            }
+        });
+    }
+
+    private static void write(Path outputDir, String name, byte[] bytes) throws IOException {
+        Path target = outputDir.resolve(name + ".class");
+        Files.createDirectories(target.getParent());
+        Files.write(target, bytes);
+    }
+}
@@ -0,0 +1,382 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.event;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+final class ListenerScanner extends ClassVisitor {
+
+    static final String LISTENER = "org/bukkit/event/Listener";
+    static final String EVENT_HANDLER = "Lorg/bukkit/event/EventHandler;";
+    static final String EVENT = "org/bukkit/event/Event";
+    private static final String OBJECT = "java/lang/Object";
+
+    private ClassInfo _info;
+
+    /**
+     * Creates a new scanner for a single class.
+     */
+    private ListenerScanner() {
+        super(Opcodes.ASM6);
+    }
+
+    /**
+     * Scans the given class file for its hierarchy and event handlers.
+     *
+     * @param input The class file
+     * @return The {@link ClassInfo}
+     * @throws IOException If the class file could not be read
+     */
+    static ClassInfo scan(InputStream input) throws IOException {
+        ListenerScanner scanner = new ListenerScanner();
+        new ClassReader(input).accept(scanner, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return scanner._info;
+    }
+
+    /**
+     * Gets the event handlers the server would register for the given class.
+     * Like the server, the declared methods of the class and the public
+     * methods of its super classes are considered, with overriding methods
+     * hiding the overridden ones.
+     *
+     * @param type The class
+     * @param classes All scanned classes by their internal name
+     * @param events Resolves classes outside of the scanned classes, the
+     *        event types of the handlers, or returns null if they are unknown
+     * @return The event handlers or null if direct invocation is not possible
+     *         because the hierarchy is not fully known or a handler is private
+     *         or static
+     */
+    static List<MethodInfo> handlers(ClassInfo type, Map<String, ClassInfo> classes, Function<String, ClassInfo> events) {
+        if ((type.getAccess() & (Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT)) != 0 || !isListener(type, classes)) {
+            return null;
+        }
+        Map<String, MethodInfo> methods = new LinkedHashMap<>();
+        ClassInfo current = type;
+        boolean declared = true;
+        while (true) {
+            for (MethodInfo method : current.getMethods()) {
+                if (declared || (method.getAccess() & Opcodes.ACC_PUBLIC) != 0) {
+                    methods.putIfAbsent(method.getName() + method.getDescriptor(), method);
+                }
+            }
+            if (current.getSuperName() == null || OBJECT.equals(current.getSuperName())) {
+                break;
+            }
+            current = classes.get(current.getSuperName());
+            if (current == null) {
+                return null;
+            }
+            declared = false;
+        }
+        List<MethodInfo> handlers = new ArrayList<>();
+        for (MethodInfo method : methods.values()) {
+            // Bridge methods carry the annotations of the bridged method, the server skips them
+            if (!method.isHandler() || (method.getAccess() & (Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC)) != 0) {
+                continue;
+            }
+            Type[] arguments = Type.getArgumentTypes(method.getDescriptor());
+            if ((method.getAccess() & (Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC)) != 0
+                    || arguments.length != 1 || arguments[0].getSort() != Type.OBJECT) {
+                return null;
+            }
+            Boolean event = isEvent(arguments[0].getInternalName(), classes, events);
+            if (event == null) {
+                return null;
+            }
+            // The server skips handlers of other types with an error
+            if (event) {
+                handlers.add(method);
+            }
+        }
+        return handlers;
+    }
+
+    /**
+     * Checks if the given class is assignable to the event class.
+     *
+     * @param name The internal name of the class
+     * @param classes All scanned classes by their internal name
+     * @param events Resolves classes outside of the scanned classes
+     * @return True if the class is an event, false if not or null if its
+     *         hierarchy is not known
+     */
+    private static Boolean isEvent(String name, Map<String, ClassInfo> classes, Function<String, ClassInfo> events) {
+        Set<String> seen = new HashSet<>();
+        String current = name;
+        while (current != null && seen.add(current)) {
+            if (EVENT.equals(current)) {
+                return true;
+            }
+            if (OBJECT.equals(current)) {
+                return false;
+            }
+            ClassInfo info = classes.containsKey(current) ? classes.get(current) : events.apply(current);
+            if (info == null) {
+                return null;
+            }
+            if ((info.getAccess() & Opcodes.ACC_INTERFACE) != 0) {
+                return false;
+            }
+            current = info.getSuperName();
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the given class implements the listener interface within the
+     * scanned classes.
+     *
+     * @param type The class
+     * @param classes All scanned classes by their internal name
+     * @return True if the class is a listener false otherwise
+     */
+    private static boolean isListener(ClassInfo type, Map<String, ClassInfo> classes) {
+        Deque<String> queue = new ArrayDeque<>();
+        Set<String> seen = new HashSet<>();
+        queue.add(type.getName());
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            if (LISTENER.equals(name)) {
+                return true;
+            }
+            ClassInfo info = classes.get(name);
+            if (info == null || !seen.add(name)) {
+                continue;
+            }
+            if (info.getSuperName() != null) {
+                queue.add(info.getSuperName());
+            }
+            queue.addAll(info.getInterfaces());
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        _info = new ClassInfo(access, name, superName, interfaces == null ? Collections.emptyList() : Arrays.asList(interfaces));
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        MethodInfo method = new MethodInfo(access, name, descriptor);
+        _info.getMethods().add(method);
+        return new MethodVisitor(Opcodes.ASM6) {
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String annotation, boolean visible) {
+                if (!EVENT_HANDLER.equals(annotation)) {
+                    return null;
+                }
+                method._handler = true;
+                return new AnnotationVisitor(Opcodes.ASM6) {
+
+                    @Override
+                    public void visit(String key, Object value) {
+                        if ("ignoreCancelled".equals(key)) {
+                            method._ignoreCancelled = (Boolean) value;
+                        }
+                    }
+
+                    @Override
+                    public void visitEnum(String key, String enumDescriptor, String value) {
+                        if ("priority".equals(key)) {
+                            method._priority = value;
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    static class ClassInfo {
+
+        private final int _access;
+        private final String _name;
+        private final String _superName;
+        private final List<String> _interfaces;
+        private final List<MethodInfo> _methods = new ArrayList<>();
+
+        /**
+         * Creates a new class info.
+         *
+         * @param access The access flags
+         * @param name The internal name
+         * @param superName The internal name of the super class or null
+         * @param interfaces The internal names of the interfaces
+         */
+        ClassInfo(int access, String name, String superName, List<String> interfaces) {
+            _access = access;
+            _name = name;
+            _superName = superName;
+            _interfaces = interfaces;
+        }
+
+        /**
+         * Gets the access flags of this class.
+         *
+         * @return The access flags
+         */
+        int getAccess() {
+            return _access;
+        }
+
+        /**
+         * Gets the internal name of this class.
+         *
+         * @return The internal name
+         */
+        String getName() {
+            return _name;
+        }
+
+        /**
+         * Gets the internal name of the super class of this class.
+         *
+         * @return The internal name or null
+         */
+        String getSuperName() {
+            return _superName;
+        }
+
+        /**
+         * Gets the internal names of the interfaces of this class.
+         *
+         * @return The internal names
+         */
+        List<String> getInterfaces() {
+            return _interfaces;
+        }
+
+        /**
+         * Gets the methods declared by this class.
+         *
+         * @return The methods
+         */
+        List<MethodInfo> getMethods() {
+            return _methods;
+        }
+    }
+
+    static class MethodInfo {
+
+        private final int _access;
+        private final String _name;
+        private final String _descriptor;
+        private boolean _handler = false;
+        private String _priority = "NORMAL";
+        private boolean _ignoreCancelled = false;
+
+        /**
+         * Creates a new method info.
+         *
+         * @param access The access flags
+         * @param name The name
+         * @param descriptor The descriptor
+         */
+        MethodInfo(int access, String name, String descriptor) {
+            _access = access;
+            _name = name;
+            _descriptor = descriptor;
+        }
+
+        /**
+         * Gets the access flags of this method.
+         *
+         * @return The access flags
+         */
+        int getAccess() {
+            return _access;
+        }
+
+        /**
+         * Gets the name of this method.
+         *
+         * @return The name
+         */
+        String getName() {
+            return _name;
+        }
+
+        /**
+         * Gets the descriptor of this method.
+         *
+         * @return The descriptor
+         */
+        String getDescriptor() {
+            return _descriptor;
+        }
+
+        /**
+         * Gets if this method is annotated as event handler.
+         *
+         * @return True if it is an event handler false otherwise
+         */
+        boolean isHandler() {
+            return _handler;
+        }
+
+        /**
+         * Gets the name of the event priority of this handler.
+         *
+         * @return The name of the event priority
+         */
+        String getPriority() {
+            return _priority;
+        }
+
+        /**
+         * Gets if this handler ignores cancelled events.
+         *
+         * @return True if cancelled events are ignored false otherwise
+         */
+        boolean isIgnoreCancelled() {
+            return _ignoreCancelled;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.footprint;
+
+import com.google.common.io.ByteStreams;
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+final class DuplicateClasses {
+
+    private final Map<String, ClassCopy> _classes = new HashMap<>();
+    private final Map<String, File> _libraries = new HashMap<>();
+
+    private DuplicateClasses() {
+    }
+
+    /**
+     * Indexes the classes of the given plugin jars by the hash of their
+     * content. Classes also found in one of the given library jars are
+     * attributed to that library.
+     *
+     * @param pluginJars The plugin jars
+     * @param libraryJars The jars of the libraries the plugins depend on
+     * @return The index
+     * @throws IOException If a jar could not be read
+     */
+    static DuplicateClasses read(Collection<File> pluginJars, Collection<File> libraryJars) throws IOException {
+        DuplicateClasses index = new DuplicateClasses();
+        for (File jar : sorted(pluginJars)) {
+            index.visit(jar, (hash, name, size) -> {
+                ClassCopy copy = index._classes.computeIfAbsent(hash, key -> new ClassCopy(name, size, jar));
+                copy._jars.add(jar.getName());
+            });
+        }
+        for (File jar : sorted(libraryJars)) {
+            index.visit(jar, (hash, name, size) -> index._libraries.putIfAbsent(hash, jar));
+        }
+        return index;
+    }
+
+    /**
+     * Gets the number of distinct classes in all plugin jars.
+     *
+     * @return The number of classes
+     */
+    int size() {
+        return _classes.size();
+    }
+
+    /**
+     * Gets the libraries of which identical classes are packed into more
+     * than one plugin jar, most redundant bytes first. Classes not found in
+     * any library jar are grouped by their package.
+     *
+     * @return The duplicated libraries
+     */
+    List<Library> duplicates() {
+        Map<String, Library> libraries = new TreeMap<>();
+        for (Map.Entry<String, ClassCopy> entry : _classes.entrySet()) {
+            ClassCopy copy = entry.getValue();
+            if (copy._jars.size() < 2) {
+                continue;
+            }
+            File jar = _libraries.get(entry.getKey());
+            String label;
+            if (jar == null) {
+                int separator = copy._name.lastIndexOf('/');
+                label = separator < 0 ? "" : copy._name.substring(0, separator).replace('/', '.');
+            } else {
+                label = jar.getName();
+            }
+            libraries.computeIfAbsent(label, name -> new Library(name, jar)).add(copy);
+        }
+        List<Library> duplicates = new ArrayList<>(libraries.values());
+        duplicates.sort(Comparator.comparingLong(Library::getRedundantBytes).reversed().thenComparing(Library::getName));
+        return duplicates;
+    }
+
+    private void visit(File jar, ClassVisitor visitor) throws IOException {
+        if (!jar.isFile()) {
+            return;
+        }
+        MessageDigest digest = digest();
+        try (ZipFile zip = new ZipFile(jar)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String name = entry.getName();
+                if (entry.isDirectory() || !PluginClasses.isClass(name)) {
+                    continue;
+                }
+                byte[] bytes;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    bytes = ByteStreams.toByteArray(in);
+                }
+                String hash = Base64.getEncoder().encodeToString(digest.digest(bytes));
+                visitor.visit(hash, name.substring(0, name.length() - PluginClasses.CLASS_SUFFIX.length()), bytes.length);
+            }
+        }
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<File> sorted(Collection<File> files) {
+        List<File> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(File::getName).thenComparing(File::getPath));
+        return sorted;
+    }
+
+    private interface ClassVisitor {
+
+        void visit(String hash, String name, int size) throws IOException;
+    }
+
+    static final class ClassCopy {
+
+        private final String _name;
+        private final int _size;
+        private final File _source;
+        private final Set<String> _jars = new TreeSet<>();
+
+        private ClassCopy(String name, int size, File source) {
+            _name = name;
+            _size = size;
+            _source = source;
+        }
+
+        /**
+         * Gets the internal name of this class.
+         *
+         * @return The internal name
+         */
+        String getName() {
+            return _name;
+        }
+
+        /**
+         * Gets the first plugin jar containing this class.
+         *
+         * @return The jar
+         */
+        File getSource() {
+            return _source;
+        }
+    }
+
+    static final class Library {
+
+        private final String _name;
+        private final File _jar;
+        private final Set<String> _jars = new TreeSet<>();
+        private final List<ClassCopy> _classes = new ArrayList<>();
+        private int _copies;
+        private long _bytes;
+        private long _redundantBytes;
+
+        private Library(String name, File jar) {
+            _name = name;
+            _jar = jar;
+        }
+
+        private void add(ClassCopy copy) {
+            _jars.addAll(copy._jars);
+            _classes.add(copy);
+            _copies += copy._jars.size();
+            _bytes += copy._size;
+            _redundantBytes += (long) copy._size * (copy._jars.size() - 1);
+        }
+
+        /**
+         * Gets the name of this library, the name of its jar or the package of
+         * its classes.
+         *
+         * @return The name
+         */
+        String getName() {
+            return _name;
+        }
+
+        /**
+         * Gets the jar of this library.
+         *
+         * @return The jar or null if the classes were not found in a library
+         *         jar
+         */
+        File getJar() {
+            return _jar;
+        }
+
+        /**
+         * Gets the names of the plugin jars containing classes of this library.
+         *
+         * @return The jar names
+         */
+        Set<String> getJars() {
+            return _jars;
+        }
+
+        /**
+         * Gets the duplicated classes of this library.
+         *
+         * @return The classes
+         */
+        List<ClassCopy> getClasses() {
+            return _classes;
+        }
+
+        /**
+         * Gets the number of copies of the duplicated classes in all plugin
+         * jars.
+         *
+         * @return The number of copies
+         */
+        int getCopies() {
+            return _copies;
+        }
+
+        /**
+         * Gets the size of one copy of the duplicated classes.
+         *
+         * @return The size in bytes
+         */
+        long getBytes() {
+            return _bytes;
+        }
+
+        /**
+         * Gets the size of all but one copy of the duplicated classes.
+         *
+         * @return The size in bytes
+         */
+        long getRedundantBytes() {
+            return _redundantBytes;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.footprint;
+
+import com.google.common.io.ByteStreams;
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import eu.hexagonmc.spigot.gradle.meta.MetadataWriter;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+@CacheableTask
+public class GenerateLibraryPluginTask extends DefaultTask {
+
+    private static final String JAVA_PLUGIN = "org/bukkit/plugin/java/JavaPlugin";
+
+    private final ConfigurableFileCollection _pluginJars;
+    private final ConfigurableFileCollection _libraries;
+    private final Property<String> _pluginName;
+    private final Property<String> _main;
+    private final Property<String> _version;
+    private final RegularFileProperty _outputJar;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public GenerateLibraryPluginTask() {
+        _pluginJars = getProject().getLayout().configurableFiles();
+        _libraries = getProject().getLayout().configurableFiles();
+        _pluginName = getProject().getObjects().property(String.class);
+        _main = getProject().getObjects().property(String.class);
+        _version = getProject().getObjects().property(String.class);
+        _outputJar = getProject().getLayout().fileProperty();
+    }
+
+    /**
+     * Gets the plugin jars deployed together.
+     *
+     * @return The jars
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public ConfigurableFileCollection getPluginJars() {
+        return _pluginJars;
+    }
+
+    /**
+     * Gets the jars of the libraries the plugins depend on. Libraries with
+     * duplicated classes are packed completely.
+     *
+     * @return The jars
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public ConfigurableFileCollection getLibraries() {
+        return _libraries;
+    }
+
+    /**
+     * Gets the property holding the name of the library plugin, which the
+     * other plugins declare as dependency.
+     *
+     * @return The property
+     */
+    @Input
+    public Property<String> getPluginName() {
+        return _pluginName;
+    }
+
+    /**
+     * Gets the property holding the fully qualified name of the generated
+     * main class of the library plugin.
+     *
+     * @return The property
+     */
+    @Input
+    public Property<String> getMain() {
+        return _main;
+    }
+
+    /**
+     * Gets the property holding the version of the library plugin.
+     *
+     * @return The property
+     */
+    @Input
+    public Property<String> getVersion() {
+        return _version;
+    }
+
+    /**
+     * Gets the property holding the library plugin jar.
+     *
+     * @return The property
+     */
+    @OutputFile
+    public RegularFileProperty getOutputJar() {
+        return _outputJar;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void generate() {
+        File output = _outputJar.get().getAsFile();
+        String main = PluginClasses.toInternalName(_main.get());
+        try {
+            List<DuplicateClasses.Library> duplicates = DuplicateClasses.read(_pluginJars.getFiles(), _libraries.getFiles()).duplicates();
+            Files.createDirectories(output.getParentFile().toPath());
+            Set<String> written = new HashSet<>();
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(output.toPath()))) {
+                write(out, PluginYml.FILENAME_SPIGOT, pluginYml(), written);
+                write(out, main + PluginClasses.CLASS_SUFFIX, mainClass(main), written);
+                for (DuplicateClasses.Library library : duplicates) {
+                    if (library.getJar() != null) {
+                        copyLibrary(out, library.getJar(), written);
+                    } else {
+                        for (DuplicateClasses.ClassCopy copy : library.getClasses()) {
+                            copyEntry(out, copy.getSource(), copy.getName() + PluginClasses.CLASS_SUFFIX, written);
+                        }
+                    }
+                }
+            }
+            getLogger().lifecycle("Generated the library plugin {} with {} duplicated libraries", _pluginName.get(), duplicates.size());
+        } catch (IOException e) {
+            throw new GradleException("Could not generate " + output, e);
+        }
+    }
+
+    private static void copyLibrary(ZipOutputStream out, File jar, Set<String> written) throws IOException {
+        try (ZipFile zip = new ZipFile(jar)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String name = entry.getName();
+                // The manifest and signatures of the library do not belong to the plugin
+                if (!entry.isDirectory() && (!name.startsWith("META-INF/") || name.startsWith(PluginClasses.SERVICES))) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        write(out, name, in, written);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void copyEntry(ZipOutputStream out, File jar, String name, Set<String> written) throws IOException {
+        try (ZipFile zip = new ZipFile(jar); InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            write(out, name, in, written);
+        }
+    }
+
+    private static void write(ZipOutputStream out, String name, InputStream in, Set<String> written) throws IOException {
+        if (written.add(name)) {
+            out.putNextEntry(new ZipEntry(name));
+            ByteStreams.copy(in, out);
+            out.closeEntry();
+        }
+    }
+
+    private static void write(ZipOutputStream out, String name, byte[] bytes, Set<String> written) throws IOException {
+        if (written.add(name)) {
+            out.putNextEntry(new ZipEntry(name));
+            out.write(bytes);
+            out.closeEntry();
+        }
+    }
+
+    private byte[] pluginYml() throws IOException {
+        StringWriter yml = new StringWriter();
+        try (MetadataWriter writer = new MetadataWriter(yml)) {
+            writer.value("name", _pluginName.get())
+                    .value("version", _version.get())
+                    .value("main", _main.get());
+        }
+        return yml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates the main class of the library plugin, an empty
+     * {@code JavaPlugin}.
+     *
+     * @param name The internal name of the class
+     * @return The class file
+     */
+    private static byte[] mainClass(String name) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, JAVA_PLUGIN, null);
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, JAVA_PLUGIN, "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.footprint;
+
+import eu.hexagonmc.spigot.gradle.SpigotGradlePlugin;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+public class PluginFootprintPlugin implements Plugin<Project> {
+
+    public static final String TASK_NAME = "pluginFootprint";
+    public static final String LIBRARY_TASK_NAME = "generateLibraryPlugin";
+    public static final String DEFAULT_LIBRARY_NAME = "SharedLibraries";
+    private static final String SHADOW_TASK_NAME = "shadowJar";
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        TaskContainer tasks = project.getTasks();
+        TaskProvider<PluginFootprintTask> footprint = tasks.register(TASK_NAME, PluginFootprintTask.class, task -> {
+            task.setGroup("help");
+            task.setDescription("Reports the classes duplicated across the plugin jars of the workspace and their metaspace cost.");
+            task.getReport().set(project.getLayout().getBuildDirectory().file("reports/pluginFootprint/duplicates.txt"));
+        });
+        TaskProvider<GenerateLibraryPluginTask> library = tasks.register(LIBRARY_TASK_NAME, GenerateLibraryPluginTask.class, task -> {
+            task.setGroup("build");
+            task.setDescription("Packs the libraries duplicated across the plugin jars of the workspace into a shared plugin.");
+            task.getPluginName().set(DEFAULT_LIBRARY_NAME);
+            task.getMain().set(task.getPluginName().map(name -> "shared." + name.toLowerCase(Locale.ROOT) + "." + name));
+            task.getVersion().set(project.provider(() -> project.getVersion().toString()));
+            task.getOutputJar().set(project.getLayout().getBuildDirectory().file(task.getPluginName().map(name -> "libraryPlugin/" + name + ".jar")));
+        });
+
+        project.allprojects(plugin -> plugin.getPlugins().withType(SpigotGradlePlugin.class, spigot -> {
+            footprint.configure(task -> from(plugin, task.getPluginJars(), task.getLibraries()));
+            library.configure(task -> from(plugin, task.getPluginJars(), task.getLibraries()));
+        }));
+    }
+
+    /**
+     * Adds the deployed jar of the given plugin project, the shadow jar if
+     * the shadow plugin is applied or the jar otherwise, and its runtime
+     * dependencies.
+     *
+     * @param plugin The plugin project
+     * @param pluginJars The plugin jars
+     * @param libraries The library jars
+     */
+    private static void from(Project plugin, ConfigurableFileCollection pluginJars, ConfigurableFileCollection libraries) {
+        TaskContainer tasks = plugin.getTasks();
+        pluginJars.from((Callable<Task>) () -> {
+            Task shadowJar = tasks.findByName(SHADOW_TASK_NAME);
+            return shadowJar == null ? tasks.getByName(JavaPlugin.JAR_TASK_NAME) : shadowJar;
+        });
+        libraries.from(plugin.getConfigurations().getByName(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME));
+    }
+}
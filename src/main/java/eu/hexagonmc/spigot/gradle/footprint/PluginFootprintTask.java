@@ -0,0 +1,126 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.footprint;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+@CacheableTask
+public class PluginFootprintTask extends DefaultTask {
+
+    private final ConfigurableFileCollection _pluginJars;
+    private final ConfigurableFileCollection _libraries;
+    private final RegularFileProperty _report;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public PluginFootprintTask() {
+        _pluginJars = getProject().getLayout().configurableFiles();
+        _libraries = getProject().getLayout().configurableFiles();
+        _report = getProject().getLayout().fileProperty();
+    }
+
+    /**
+     * Gets the plugin jars deployed together.
+     *
+     * @return The jars
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public ConfigurableFileCollection getPluginJars() {
+        return _pluginJars;
+    }
+
+    /**
+     * Gets the jars of the libraries the plugins depend on, used to name the
+     * duplicated classes.
+     *
+     * @return The jars
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public ConfigurableFileCollection getLibraries() {
+        return _libraries;
+    }
+
+    /**
+     * Gets the property holding the report file.
+     *
+     * @return The property
+     */
+    @OutputFile
+    public RegularFileProperty getReport() {
+        return _report;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void report() {
+        File report = _report.get().getAsFile();
+        long redundantBytes = 0;
+        int redundantClasses = 0;
+        try {
+            DuplicateClasses classes = DuplicateClasses.read(_pluginJars.getFiles(), _libraries.getFiles());
+            List<DuplicateClasses.Library> duplicates = classes.duplicates();
+            Files.createDirectories(report.getParentFile().toPath());
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8))) {
+                out.println("# Library\tclasses\tcopies\tbytes\tredundant bytes\tplugin jars");
+                for (DuplicateClasses.Library library : duplicates) {
+                    out.println(library.getName() + "\t" + library.getClasses().size() + "\t" + library.getCopies() + "\t"
+                            + library.getBytes() + "\t" + library.getRedundantBytes() + "\t" + String.join(", ", library.getJars()));
+                    redundantBytes += library.getRedundantBytes();
+                    redundantClasses += library.getCopies() - library.getClasses().size();
+                }
+                out.println();
+                out.println("# Total");
+                out.println("plugin jars\t" + _pluginJars.getFiles().size());
+                out.println("distinct classes\t" + classes.size());
+                out.println("redundant classes\t" + redundantClasses);
+                // Loaded classes take at least the size of their class file in metaspace
+                out.println("estimated metaspace\t" + redundantBytes);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Could not write " + report, e);
+        }
+        getLogger().lifecycle("{} redundant class copies, at least {} bytes of metaspace if loaded, see {}", redundantClasses, redundantBytes,
+                report);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.layout;
+
+public class PluginJarLayout {
+
+    public static final String EXTENSION_NAME = "pluginLayout";
+
+    private boolean _enabled = false;
+    private boolean _hotClasses = true;
+    private boolean _stored = false;
+
+    /**
+     * Gets if the entries of the jar are reordered so the metadata files
+     * come first.
+     *
+     * @return True if the jar is reordered false otherwise
+     */
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * Sets if the entries of the jar are reordered so the metadata files
+     * come first.
+     *
+     * @param enabled True if the jar is reordered false otherwise
+     */
+    public void setEnabled(boolean enabled) {
+        _enabled = enabled;
+    }
+
+    /**
+     * Gets if the main classes, listeners and command executors are placed
+     * directly after the metadata files.
+     *
+     * @return True if the hot classes come first false otherwise
+     */
+    public boolean isHotClasses() {
+        return _hotClasses;
+    }
+
+    /**
+     * Sets if the main classes, listeners and command executors are placed
+     * directly after the metadata files.
+     *
+     * @param hotClasses True if the hot classes come first false otherwise
+     */
+    public void setHotClasses(boolean hotClasses) {
+        _hotClasses = hotClasses;
+    }
+
+    /**
+     * Gets if all entries are stored uncompressed. This trades jar size for
+     * read time and pays off for small jars.
+     *
+     * @return True if the entries are stored false otherwise
+     */
+    public boolean isStored() {
+        return _stored;
+    }
+
+    /**
+     * Sets if all entries are stored uncompressed. This trades jar size for
+     * read time and pays off for small jars.
+     *
+     * @param stored True if the entries are stored false otherwise
+     */
+    public void setStored(boolean stored) {
+        _stored = stored;
+    }
+}
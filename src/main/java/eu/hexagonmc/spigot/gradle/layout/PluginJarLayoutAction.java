@@ -0,0 +1,130 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.layout;
+
+import com.google.common.io.ByteStreams;
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+public class PluginJarLayoutAction implements Action<Task> {
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void execute(Task task) {
+        PluginJarLayout layout = task.getExtensions().getByType(PluginJarLayout.class);
+        if (!layout.isEnabled()) {
+            return;
+        }
+        File jar = ((AbstractArchiveTask) task).getArchivePath();
+        try {
+            rewrite(jar, layout.isHotClasses(), layout.isStored(), task.getTemporaryDir());
+        } catch (IOException e) {
+            throw new GradleException("Could not optimize the layout of " + jar, e);
+        }
+    }
+
+    /**
+     * Rewrites the given jar. The manifest stays first as required by
+     * {@link java.util.jar.JarInputStream}, followed by the metadata files,
+     * optionally the hot classes in load order and all other entries in
+     * their original order.
+     *
+     * @param jar The jar
+     * @param hotClasses If the main classes, listeners and command executors
+     *        come directly after the metadata files
+     * @param stored If the entries are stored uncompressed
+     * @param temporaryDir A directory for temporary files
+     * @throws IOException If the jar could not be read or written
+     */
+    public static void rewrite(File jar, boolean hotClasses, boolean stored, File temporaryDir) throws IOException {
+        Path target = new File(temporaryDir, jar.getName()).toPath();
+        try (ZipFile zip = new ZipFile(jar)) {
+            Map<String, ZipEntry> entries = new LinkedHashMap<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                entries.put(entry.getName(), entry);
+            }
+            List<String> order = new ArrayList<>();
+            order.addAll(Arrays.asList("META-INF/", JarFile.MANIFEST_NAME, PluginYml.FILENAME_SPIGOT, PluginYml.FILENAME_BUNGEE));
+            if (hotClasses) {
+                for (String name : PluginClasses.read(zip, temporaryDir).hotClasses()) {
+                    order.add(name + PluginClasses.CLASS_SUFFIX);
+                }
+            }
+            order.addAll(entries.keySet());
+
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+                for (String name : order) {
+                    ZipEntry entry = entries.remove(name);
+                    if (entry != null) {
+                        write(zip, entry, out, stored);
+                    }
+                }
+            }
+        }
+        Files.move(target, jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void write(ZipFile zip, ZipEntry entry, ZipOutputStream out, boolean stored) throws IOException {
+        byte[] bytes;
+        try (InputStream in = zip.getInputStream(entry)) {
+            bytes = ByteStreams.toByteArray(in);
+        }
+        ZipEntry copy = new ZipEntry(entry.getName());
+        copy.setTime(entry.getTime());
+        if (stored || entry.getMethod() == ZipEntry.STORED) {
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            copy.setMethod(ZipEntry.STORED);
+            copy.setSize(bytes.length);
+            copy.setCompressedSize(bytes.length);
+            copy.setCrc(crc.getValue());
+        }
+        out.putNextEntry(copy);
+        out.write(bytes);
+        out.closeEntry();
+    }
+}
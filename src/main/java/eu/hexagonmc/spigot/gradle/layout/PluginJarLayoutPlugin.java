@@ -0,0 +1,60 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.layout;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+
+import java.util.concurrent.Callable;
+
+public class PluginJarLayoutPlugin implements Plugin<Project> {
+
+    private static final String SHADOW_PLUGIN_ID = "com.github.johnrengelman.shadow";
+    private static final String SHADOW_TASK_NAME = "shadowJar";
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            configure(project.getTasks().withType(AbstractArchiveTask.class).named(JavaPlugin.JAR_TASK_NAME));
+        });
+        project.getPlugins().withId(SHADOW_PLUGIN_ID, plugin -> {
+            configure(project.getTasks().withType(AbstractArchiveTask.class).named(SHADOW_TASK_NAME));
+        });
+    }
+
+    private static void configure(TaskProvider<AbstractArchiveTask> archive) {
+        archive.configure(task -> {
+            PluginJarLayout layout = task.getExtensions().create(PluginJarLayout.EXTENSION_NAME, PluginJarLayout.class);
+            task.getInputs().property(PluginJarLayout.EXTENSION_NAME + ".enabled", (Callable<Boolean>) layout::isEnabled);
+            task.getInputs().property(PluginJarLayout.EXTENSION_NAME + ".hotClasses", (Callable<Boolean>) layout::isHotClasses);
+            task.getInputs().property(PluginJarLayout.EXTENSION_NAME + ".stored", (Callable<Boolean>) layout::isStored);
+            task.doLast(new PluginJarLayoutAction());
+        });
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.library;
+
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.meta.GenerateMetadataAction;
+import eu.hexagonmc.spigot.gradle.meta.MetadataWriter;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.compile.JavaCompile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class AppendLibrariesAction implements Action<Task> {
+
+    private final Provider<List<String>> _libraries;
+
+    /**
+     * Creates a new action appending the given libraries to the plugin.yml
+     * written by the spigot annotation processor.
+     *
+     * @param libraries The maven coordinates of the libraries
+     */
+    public AppendLibrariesAction(Provider<List<String>> libraries) {
+        _libraries = libraries;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void execute(Task task) {
+        Path target = ((JavaCompile) task).getDestinationDir().toPath().resolve(PluginYml.FILENAME_SPIGOT);
+        String key = GenerateMetadataAction.LIBRARIES_KEY + ":";
+        try {
+            if (!Files.isRegularFile(target) || Files.readAllLines(target, StandardCharsets.UTF_8).stream().anyMatch(line -> line.startsWith(key))) {
+                return;
+            }
+            MetadataWriter.append(target, GenerateMetadataAction.LIBRARIES_KEY, _libraries.get());
+        } catch (IOException e) {
+            throw new GradleException("Could not write the libraries to " + target, e);
+        }
+    }
+}
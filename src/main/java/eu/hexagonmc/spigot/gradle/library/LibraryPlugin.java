@@ -0,0 +1,163 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.library;
+
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import eu.hexagonmc.spigot.gradle.SpigotAnnotationPlugin;
+import eu.hexagonmc.spigot.gradle.meta.GenerateMetadataTask;
+import eu.hexagonmc.spigot.gradle.meta.MetadataPlugin;
+import eu.hexagonmc.spigot.gradle.relocate.RelocationPlugin;
+import org.gradle.api.GradleException;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+import org.gradle.api.tasks.compile.JavaCompile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class LibraryPlugin implements Plugin<Project> {
+
+    public static final String CONFIGURATION_NAME = "spigotLibrary";
+    public static final String REPORT_TASK_NAME = "spigotLibraryReport";
+    private static final List<String> ARCHIVE_TASK_NAMES = Arrays.asList(JavaPlugin.JAR_TASK_NAME, "shadowJar", RelocationPlugin.JAR_TASK_NAME);
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        project.getPlugins().apply(MetadataPlugin.class);
+
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            ConfigurationContainer configurations = project.getConfigurations();
+            Configuration libraries = configurations.create(CONFIGURATION_NAME, configuration -> {
+                configuration.setVisible(false);
+                configuration.setDescription("Libraries downloaded by the server and written to the libraries of the plugin.yml.");
+            });
+            configurations.getByName(JavaPlugin.COMPILE_ONLY_CONFIGURATION_NAME).extendsFrom(libraries);
+            configurations.getByName(JavaPlugin.TEST_IMPLEMENTATION_CONFIGURATION_NAME).extendsFrom(libraries);
+
+            TaskContainer tasks = project.getTasks();
+            Provider<List<String>> coordinates = project.provider(() -> coordinates(libraries));
+            tasks.withType(GenerateMetadataTask.class).named(MetadataPlugin.TASK_NAME).configure(task -> {
+                task.getLibrariesSpigot().set(coordinates);
+            });
+            // The spigot annotation processor writes the final plugin.yml and drops unknown keys
+            project.getPlugins().withType(SpigotAnnotationPlugin.class, annotations -> {
+                tasks.withType(JavaCompile.class).named(JavaPlugin.COMPILE_JAVA_TASK_NAME).configure(compileJava -> {
+                    compileJava.getInputs().property(CONFIGURATION_NAME, (Callable<List<String>>) coordinates::get);
+                    compileJava.doLast(new AppendLibrariesAction(coordinates));
+                });
+            });
+
+            // Shaded dependencies may pull in a library transitively, which would then be loaded twice
+            Spec<FileTreeElement> libraryEntry = libraryEntries(libraries);
+            tasks.withType(AbstractArchiveTask.class).matching(task -> ARCHIVE_TASK_NAMES.contains(task.getName())).configureEach(task -> {
+                task.getInputs().files(libraries).withPropertyName(CONFIGURATION_NAME);
+                task.exclude(libraryEntry);
+            });
+
+            tasks.register(REPORT_TASK_NAME, LibraryReportTask.class, task -> {
+                task.setGroup("help");
+                task.setDescription("Reports the jar size and classes saved by loading libraries through the server.");
+                task.getLibraries().from(libraries);
+                task.getCoordinates().set(coordinates);
+                task.getReport().set(project.getLayout().getBuildDirectory().file("reports/spigotLibraries/libraries.txt"));
+            });
+        });
+    }
+
+    /**
+     * Gets the maven coordinates of the dependencies declared in the given
+     * configuration. Transitive dependencies are resolved by the server.
+     *
+     * @param libraries The configuration
+     * @return The coordinates
+     */
+    private static List<String> coordinates(Configuration libraries) {
+        return libraries.getResolvedConfiguration().getFirstLevelModuleDependencies().stream()
+                .map(dependency -> dependency.getModuleGroup() + ":" + dependency.getModuleName() + ":" + dependency.getModuleVersion())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Creates a spec matching the class entries of the jars of the given
+     * configuration. The entries are read once when first needed.
+     *
+     * @param libraries The configuration
+     * @return The spec
+     */
+    private static Spec<FileTreeElement> libraryEntries(Configuration libraries) {
+        AtomicReference<Set<String>> entries = new AtomicReference<>();
+        return element -> {
+            if (element.isDirectory()) {
+                return false;
+            }
+            Set<String> names = entries.get();
+            if (names == null) {
+                names = read(libraries.getFiles());
+                entries.set(names);
+            }
+            return names.contains(element.getRelativePath().getPathString());
+        };
+    }
+
+    private static Set<String> read(Set<File> jars) {
+        Set<String> names = new HashSet<>();
+        for (File jar : jars) {
+            if (!jar.isFile()) {
+                continue;
+            }
+            try (ZipFile zip = new ZipFile(jar)) {
+                for (ZipEntry entry : Collections.list(zip.entries())) {
+                    // Resources may share their path with resources of the plugin, e.g. config.yml
+                    if (!entry.isDirectory() && PluginClasses.isClass(entry.getName())) {
+                        names.add(entry.getName());
+                    }
+                }
+            } catch (IOException e) {
+                throw new GradleException("Could not read " + jar, e);
+            }
+        }
+        return names;
+    }
+}
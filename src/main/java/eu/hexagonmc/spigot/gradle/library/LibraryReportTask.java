@@ -0,0 +1,143 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.library;
+
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+@CacheableTask
+public class LibraryReportTask extends DefaultTask {
+
+    private final ConfigurableFileCollection _libraries;
+    private final ListProperty<String> _coordinates;
+    private final RegularFileProperty _report;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public LibraryReportTask() {
+        _libraries = getProject().getLayout().configurableFiles();
+        _coordinates = getProject().getObjects().listProperty(String.class);
+        _report = getProject().getLayout().fileProperty();
+    }
+
+    /**
+     * Gets the jars of the libraries including their transitive
+     * dependencies.
+     *
+     * @return The jars
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public ConfigurableFileCollection getLibraries() {
+        return _libraries;
+    }
+
+    /**
+     * Gets the property holding the maven coordinates written to the
+     * plugin.yml.
+     *
+     * @return The property
+     */
+    @Input
+    public ListProperty<String> getCoordinates() {
+        return _coordinates;
+    }
+
+    /**
+     * Gets the property holding the report file.
+     *
+     * @return The property
+     */
+    @OutputFile
+    public RegularFileProperty getReport() {
+        return _report;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void report() {
+        List<File> jars = new ArrayList<>(_libraries.getFiles());
+        jars.sort(Comparator.comparing(File::getName));
+        File report = _report.get().getAsFile();
+        long totalBytes = 0;
+        int totalClasses = 0;
+        try {
+            Files.createDirectories(report.getParentFile().toPath());
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8))) {
+                out.println("# Libraries");
+                _coordinates.getOrElse(Collections.emptyList()).forEach(out::println);
+                out.println();
+                out.println("# Jar\tbytes\tclasses");
+                for (File jar : jars) {
+                    long bytes = jar.length();
+                    int classes = countClasses(jar);
+                    out.println(jar.getName() + "\t" + bytes + "\t" + classes);
+                    totalBytes += bytes;
+                    totalClasses += classes;
+                }
+                out.println();
+                out.println("# Saved per plugin jar");
+                out.println("bytes\t" + totalBytes);
+                out.println("classes\t" + totalClasses);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Could not write " + report, e);
+        }
+        getLogger().lifecycle("Libraries loaded by the server save {} bytes and {} classes per plugin jar, see {}", totalBytes, totalClasses,
+                report);
+    }
+
+    private static int countClasses(File jar) throws IOException {
+        if (!jar.isFile()) {
+            return 0;
+        }
+        try (ZipFile zip = new ZipFile(jar)) {
+            return (int) zip.stream().filter(entry -> PluginClasses.isClass(entry.getName())).count();
+        }
+    }
+}
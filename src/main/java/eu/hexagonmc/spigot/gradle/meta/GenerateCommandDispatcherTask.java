@@ -0,0 +1,335 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.meta;
+
+import eu.hexagonmc.spigot.gradle.SpigotGradle;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+@CacheableTask
+public class GenerateCommandDispatcherTask extends DefaultTask {
+
+    private static final int MAX_TABLE_BITS = 24;
+    private static final int DISPLACEMENT_ATTEMPTS = 1 << 16;
+    private static final int BUCKET_SEED = 0x85EBCA6B;
+    private static final int SLOT_SEED = 0x9E3779B9;
+
+    private final Property<String> _className;
+    private final Property<MetadataSnapshot> _snapshot;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public GenerateCommandDispatcherTask() {
+        _className = getProject().getObjects().property(String.class);
+        _snapshot = getProject().getObjects().property(MetadataSnapshot.class);
+    }
+
+    /**
+     * Gets the property holding the fully qualified name of the generated
+     * dispatcher class. Nothing is generated if it is not set.
+     *
+     * @return The property
+     */
+    @Input
+    @Optional
+    public Property<String> getClassName() {
+        return _className;
+    }
+
+    /**
+     * Gets the property holding the spigot {@link MetadataSnapshot} with the
+     * commands to dispatch.
+     *
+     * @return The property
+     */
+    @Input
+    @Optional
+    public Property<MetadataSnapshot> getSnapshot() {
+        return _snapshot;
+    }
+
+    /**
+     * Gets the output directory of the generated sources.
+     *
+     * @return The output directory
+     */
+    @OutputDirectory
+    public File getOutputDir() {
+        return new File(getTemporaryDir(), "source");
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void generate() {
+        Path outputDir = getOutputDir().toPath();
+        try {
+            SpigotGradle.cleanDirectory(outputDir);
+            String className = _className.getOrNull();
+            MetadataSnapshot snapshot = _snapshot.getOrNull();
+            if (className == null || !(snapshot instanceof MetadataSpigotSnapshot)) {
+                return;
+            }
+            Path target = outputDir.resolve(className.replace('.', '/') + ".java");
+            Files.createDirectories(target.getParent());
+            try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                writer.write(source(className, ((MetadataSpigotSnapshot) snapshot).getCommands()));
+            }
+        } catch (IOException e) {
+            throw new GradleException("Could not generate the command dispatcher", e);
+        }
+    }
+
+    /**
+     * Generates the source of the dispatcher. Command names and aliases are
+     * placed in a table by a hash and displace perfect hash of
+     * {@link String#hashCode()}: the hash selects a bucket whose displacement
+     * moves its labels to free slots. Both tables grow linearly with the
+     * number of labels and a lookup is two multiplications, array accesses
+     * and a comparison.
+     *
+     * @param className The fully qualified name of the dispatcher class
+     * @param commands The commands
+     * @return The source
+     */
+    private static String source(String className, List<MetadataSpigotSnapshot.Command> commands) {
+        Map<String, Integer> labels = new LinkedHashMap<>();
+        for (int i = 0; i < commands.size(); i++) {
+            labels.putIfAbsent(commands.get(i).getName(), i);
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            for (String alias : commands.get(i).getAliases()) {
+                labels.putIfAbsent(alias, i);
+            }
+        }
+        // Labels with equal hash codes share a slot for every displacement
+        Map<Integer, String> hashes = new HashMap<>();
+        for (String label : labels.keySet()) {
+            String other = hashes.putIfAbsent(label.hashCode(), label);
+            if (other != null) {
+                throw new GradleException("The command labels " + other + " and " + label + " have the same hash code and can not be dispatched");
+            }
+        }
+        int bits = 1;
+        while ((1 << bits) < labels.size()) {
+            bits++;
+        }
+        int[] displacements;
+        while ((displacements = displace(new ArrayList<>(hashes.keySet()), bits)) == null) {
+            if (++bits > MAX_TABLE_BITS) {
+                throw new GradleException("Could not find a perfect hash for " + labels.size() + " command labels");
+            }
+        }
+        String[] keys = new String[1 << bits];
+        int[] values = new int[1 << bits];
+        Arrays.fill(values, -1);
+        for (Map.Entry<String, Integer> label : labels.entrySet()) {
+            int hash = label.getKey().hashCode();
+            int slot = slot(hash, displacements[bucket(hash, bucketBits(bits))], bits);
+            keys[slot] = label.getKey();
+            values[slot] = label.getValue();
+        }
+
+        int split = className.lastIndexOf('.');
+        StringBuilder source = new StringBuilder();
+        if (split > 0) {
+            source.append("package ").append(className, 0, split).append(";\n\n");
+        }
+        source.append("import org.bukkit.command.Command;\n");
+        source.append("import org.bukkit.command.CommandSender;\n\n");
+        source.append("/**\n * Command dispatch table generated by Spigot-Gradle from the spigot commands\n * block. Do not edit.\n */\n");
+        source.append("public final class ").append(className.substring(split + 1)).append(" {\n\n");
+        Set<String> constants = new HashSet<>();
+        for (int i = 0; i < commands.size(); i++) {
+            String constant = constant(commands.get(i).getName());
+            while (!constants.add(constant)) {
+                constant = constant + "_" + i;
+            }
+            source.append("    public static final int ").append(constant).append(" = ").append(i).append(";\n");
+        }
+        if (!commands.isEmpty()) {
+            source.append('\n');
+        }
+        source.append("    private static final int BUCKET_SEED = ").append(BUCKET_SEED).append(";\n");
+        source.append("    private static final int BUCKET_SHIFT = ").append(32 - bucketBits(bits)).append(";\n");
+        source.append("    private static final int SLOT_SEED = ").append(SLOT_SEED).append(";\n");
+        source.append("    private static final int SHIFT = ").append(32 - bits).append(";\n");
+        source.append("    private static final int[] DISPLACEMENTS = {");
+        for (int i = 0; i < displacements.length; i++) {
+            source.append(i == 0 ? "" : ", ").append(displacements[i]);
+        }
+        source.append("};\n");
+        source.append("    private static final String[] KEYS = {");
+        for (int i = 0; i < keys.length; i++) {
+            source.append(i == 0 ? "" : ", ").append(literal(keys[i]));
+        }
+        source.append("};\n");
+        source.append("    private static final int[] VALUES = {");
+        for (int i = 0; i < values.length; i++) {
+            source.append(i == 0 ? "" : ", ").append(values[i]);
+        }
+        source.append("};\n\n");
+        source.append("    private final Handler[] _handlers = new Handler[").append(commands.size()).append("];\n\n");
+        source.append("    public ").append(className.substring(split + 1)).append(" on(int command, Handler handler) {\n");
+        source.append("        _handlers[command] = handler;\n");
+        source.append("        return this;\n");
+        source.append("    }\n\n");
+        source.append("    public static int lookup(String label) {\n");
+        source.append("        int hash = label.hashCode();\n");
+        source.append("        int slot = ((hash ^ DISPLACEMENTS[(hash * BUCKET_SEED) >>> BUCKET_SHIFT]) * SLOT_SEED) >>> SHIFT;\n");
+        source.append("        return label.equals(KEYS[slot]) ? VALUES[slot] : -1;\n");
+        source.append("    }\n\n");
+        source.append("    public boolean dispatch(CommandSender sender, Command command, String label, String[] args) {\n");
+        source.append("        // The label is the alias used, with the plugin prefix if the command was namespaced\n");
+        source.append("        int id = lookup(label.substring(label.indexOf(':') + 1));\n");
+        source.append("        if (id < 0) {\n");
+        source.append("            id = lookup(command.getName());\n");
+        source.append("        }\n");
+        source.append("        if (id < 0 || _handlers[id] == null) {\n");
+        source.append("            return false;\n");
+        source.append("        }\n");
+        source.append("        // The server checked the permission of the command before calling its executor\n");
+        source.append("        return _handlers[id].onCommand(sender, command, label, args);\n");
+        source.append("    }\n\n");
+        source.append("    @FunctionalInterface\n");
+        source.append("    public interface Handler {\n\n");
+        source.append("        boolean onCommand(CommandSender sender, Command command, String label, String[] args);\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Searches a displacement for every bucket which moves the hashes of the
+     * bucket to free slots of a table with the given size. Larger buckets are
+     * placed first while most slots are still free.
+     *
+     * @param hashes The distinct hash codes of the labels
+     * @param bits The number of table bits
+     * @return The displacements of the buckets or null if the hashes do not
+     *         fit into the table
+     */
+    private static int[] displace(List<Integer> hashes, int bits) {
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int i = 0; i < 1 << bucketBits(bits); i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int hash : hashes) {
+            buckets.get(bucket(hash, bucketBits(bits))).add(hash);
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingInt((Integer bucket) -> buckets.get(bucket).size()).reversed());
+        int[] displacements = new int[buckets.size()];
+        boolean[] used = new boolean[1 << bits];
+        for (int bucket : order) {
+            List<Integer> members = buckets.get(bucket);
+            if (members.isEmpty()) {
+                break;
+            }
+            int displacement = 0;
+            while (!fits(members, displacement, bits, used)) {
+                if (++displacement == DISPLACEMENT_ATTEMPTS) {
+                    return null;
+                }
+            }
+            for (int hash : members) {
+                used[slot(hash, displacement, bits)] = true;
+            }
+            displacements[bucket] = displacement;
+        }
+        return displacements;
+    }
+
+    private static boolean fits(List<Integer> hashes, int displacement, int bits, boolean[] used) {
+        Set<Integer> slots = new HashSet<>();
+        for (int hash : hashes) {
+            int slot = slot(hash, displacement, bits);
+            if (used[slot] || !slots.add(slot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int bucketBits(int bits) {
+        return Math.max(1, bits - 1);
+    }
+
+    private static int bucket(int hash, int bucketBits) {
+        return (hash * BUCKET_SEED) >>> (32 - bucketBits);
+    }
+
+    private static int slot(int hash, int displacement, int bits) {
+        return ((hash ^ displacement) * SLOT_SEED) >>> (32 - bits);
+    }
+
+    private static String constant(String name) {
+        String constant = name.toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]", "_");
+        return constant.isEmpty() || Character.isDigit(constant.charAt(0)) ? "_" + constant : constant;
+    }
+
+    private static String literal(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
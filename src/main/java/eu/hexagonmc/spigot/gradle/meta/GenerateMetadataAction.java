@@ -0,0 +1,109 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.meta;
+
+import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import javax.inject.Inject;
+
+public class GenerateMetadataAction implements Runnable {
+
+    public static final String LIBRARIES_KEY = "libraries";
+
+    private final MetadataSnapshot _snapshot;
+    private final List<File> _metadataFiles;
+    private final boolean _mergeMetadata;
+    private final boolean _streamMetadata;
+    private final List<String> _libraries;
+    private final File _target;
+
+    /**
+     * Creates a new action generating a single metadata file.
+     *
+     * @param snapshot The {@link MetadataSnapshot} or null
+     * @param metadataFiles The existing metadata files in merge order
+     * @param mergeMetadata True to merge the existing metadata files
+     * @param streamMetadata True to stream the snapshot if nothing is merged
+     * @param libraries The maven coordinates of the libraries loaded by the
+     *        server
+     * @param target The file to write
+     */
+    @Inject
+    public GenerateMetadataAction(MetadataSnapshot snapshot, List<File> metadataFiles, Boolean mergeMetadata, Boolean streamMetadata,
+            List<String> libraries, File target) {
+        _snapshot = snapshot;
+        _metadataFiles = metadataFiles;
+        _mergeMetadata = mergeMetadata;
+        _streamMetadata = streamMetadata;
+        _libraries = libraries;
+        _target = target;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void run() {
+        try {
+            if (_streamMetadata && _snapshot != null && (!_mergeMetadata || _metadataFiles.isEmpty())) {
+                try (MetadataWriter writer = new MetadataWriter(_target.toPath())) {
+                    _snapshot.write(writer);
+                }
+            } else {
+                PluginYml.write(_target.toPath(), merge());
+            }
+            if (_target.isFile()) {
+                // PluginMetadata has no libraries, so they are appended the same way for both modes
+                MetadataWriter.append(_target.toPath(), LIBRARIES_KEY, _libraries);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Could not generate " + _target.getName(), e);
+        }
+    }
+
+    /**
+     * Merges the existing metadata files into the {@link PluginMetadata} of the
+     * {@link MetadataSnapshot} if merging is enabled.
+     *
+     * @return The merged {@link PluginMetadata} or null
+     * @throws IOException If an existing metadata file could not be read
+     */
+    private PluginMetadata merge() throws IOException {
+        PluginMetadata metaData = _snapshot == null ? null : _snapshot.build();
+        if (_mergeMetadata) {
+            for (File file : _metadataFiles) {
+                if (metaData == null) {
+                    metaData = PluginYml.read(file.toPath());
+                } else {
+                    metaData.accept(MetadataCache.getInstance().read(file));
+                }
+            }
+        }
+        return metaData;
+    }
+}
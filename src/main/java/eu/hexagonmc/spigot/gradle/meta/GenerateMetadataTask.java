@@ -24,40 +24,60 @@ package eu.hexagonmc.spigot.gradle.meta;
 
 import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
 import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.runtime.PermissionIndex;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.file.FileTree;
-import org.gradle.api.plugins.JavaPluginConvention;
-import org.gradle.api.specs.Specs;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
-import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.IsolationMode;
+import org.gradle.workers.WorkerExecutor;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
 
+@CacheableTask
 public class GenerateMetadataTask extends DefaultTask {
 
     private boolean _mergeMetadata = true;
+    private boolean _streamMetadata = false;
+    private boolean _permissionIndex = false;
 
-    private Supplier<PluginMetadata> _providerSpigot = () -> null;
-    private Supplier<PluginMetadata> _providerBungee = () -> null;
+    private final Property<MetadataSnapshot> _snapshotSpigot;
+    private final Property<MetadataSnapshot> _snapshotBungee;
+    private final ListProperty<String> _librariesSpigot;
 
-    private Path _targetSpigot;
-    private Path _targetBungee;
-
-    private List<Path> _metadataFilesSpigot = new ArrayList<>();
-    private List<Path> _metadataFilesBungee = new ArrayList<>();
+    private final ConfigurableFileCollection _metadataFilesSpigot;
+    private final ConfigurableFileCollection _metadataFilesBungee;
 
     /**
-     * Constructor sets task never up to date.
+     * Constructor sets up the task properties.
      */
     public GenerateMetadataTask() {
-        getOutputs().upToDateWhen(Specs.satisfyNone());
+        _snapshotSpigot = getProject().getObjects().property(MetadataSnapshot.class);
+        _snapshotBungee = getProject().getObjects().property(MetadataSnapshot.class);
+        _librariesSpigot = getProject().getObjects().listProperty(String.class);
+        _metadataFilesSpigot = getProject().getLayout().configurableFiles();
+        _metadataFilesBungee = getProject().getLayout().configurableFiles();
     }
 
     /**
@@ -71,41 +91,91 @@ public class GenerateMetadataTask extends DefaultTask {
     }
 
     /**
-     * Sets an supplier that returns existing spigot {@link PluginMetadata}.
+     * Gets if the merging of available {@link PluginMetadata} sources is
+     * enabled.
+     *
+     * @return True if enabled false otherwise
+     */
+    @Input
+    public boolean isMergeMetadata() {
+        return _mergeMetadata;
+    }
+
+    /**
+     * Enables or disables streaming the {@link MetadataSnapshot} directly to
+     * the output files. Streaming skips building an {@link PluginMetadata}
+     * and is used whenever there are no existing metadata files to merge.
+     *
+     * @param state True to enable false otherwise
+     */
+    public void setStreamMetadata(boolean state) {
+        _streamMetadata = state;
+    }
+
+    /**
+     * Gets if streaming the {@link MetadataSnapshot} directly to the output
+     * files is enabled.
+     *
+     * @return True if enabled false otherwise
+     */
+    @Input
+    public boolean isStreamMetadata() {
+        return _streamMetadata;
+    }
+
+    /**
+     * Enables or disables the generation of an {@link PermissionIndex} of the
+     * spigot permissions. The permissions are left out of the spigot
+     * {@link PluginMetadata} then, as the plugin registers them from the
+     * index.
      *
-     * @param supplier The supplier
+     * @param state True to enable false otherwise
      */
-    public void setProviderSpigot(Supplier<PluginMetadata> supplier) {
-        _providerSpigot = supplier;
+    public void setPermissionIndex(boolean state) {
+        _permissionIndex = state;
     }
 
     /**
-     * Returns the supplied {@link PluginMetadata} from the supplier set by
-     * {@link #setProviderSpigot(Supplier)}.
+     * Gets if the generation of an {@link PermissionIndex} is enabled.
      *
-     * @return The {@link PluginMetadata}
+     * @return True if enabled false otherwise
      */
-    private PluginMetadata getMetadataSpigot() {
-        return _providerSpigot.get();
+    @Input
+    public boolean isPermissionIndex() {
+        return _permissionIndex;
     }
 
     /**
-     * Sets an supplier that returns existing bungee {@link PluginMetadata}.
+     * Gets the property holding the spigot {@link MetadataSnapshot}.
      *
-     * @param supplier The supplier
+     * @return The property
      */
-    public void setProviderBungee(Supplier<PluginMetadata> supplier) {
-        _providerBungee = supplier;
+    @Input
+    @Optional
+    public Property<MetadataSnapshot> getSnapshotSpigot() {
+        return _snapshotSpigot;
     }
 
     /**
-     * Returns the supplied {@link PluginMetadata} from the supplier set by
-     * {@link #setProviderBungee(Supplier)}.
+     * Gets the property holding the bungee {@link MetadataSnapshot}.
      *
-     * @return The {@link PluginMetadata}
+     * @return The property
      */
-    private PluginMetadata getMetadataBungee() {
-        return _providerBungee.get();
+    @Input
+    @Optional
+    public Property<MetadataSnapshot> getSnapshotBungee() {
+        return _snapshotBungee;
+    }
+
+    /**
+     * Gets the maven coordinates of the libraries written to the
+     * {@code libraries} section of the spigot {@link PluginMetadata}.
+     *
+     * @return The property
+     */
+    @Input
+    public ListProperty<String> getLibrariesSpigot() {
+        return _librariesSpigot;
     }
 
     /**
@@ -115,10 +185,7 @@ public class GenerateMetadataTask extends DefaultTask {
      */
     @Internal
     public Path getTargetSpigot() {
-        if (_targetSpigot == null) {
-            return _targetSpigot = getTemporaryDir().toPath().resolve(PluginYml.FILENAME_SPIGOT);
-        }
-        return _targetSpigot;
+        return getTemporaryDir().toPath().resolve(PluginYml.FILENAME_SPIGOT);
     }
 
     /**
@@ -138,10 +205,7 @@ public class GenerateMetadataTask extends DefaultTask {
      */
     @Internal
     public Path getTargetBungee() {
-        if (_targetBungee == null) {
-            return _targetBungee = getTemporaryDir().toPath().resolve(PluginYml.FILENAME_BUNGEE);
-        }
-        return _targetBungee;
+        return getTemporaryDir().toPath().resolve(PluginYml.FILENAME_BUNGEE);
     }
 
     /**
@@ -155,79 +219,110 @@ public class GenerateMetadataTask extends DefaultTask {
     }
 
     /**
-     * Gets the {@link Path}'s to the spigot {@link PluginMetadata} resolved by
-     * {@link #findExtraMetadataFiles(SourceSet)}.
+     * Gets the {@link PermissionIndex} output file.
+     *
+     * @return The output file
+     */
+    @OutputFile
+    public File getOuputFilePermissions() {
+        return new File(getTemporaryDir(), PermissionIndex.RESOURCE);
+    }
+
+    /**
+     * Gets the existing spigot {@link PluginMetadata} files to merge.
      *
-     * @return The {@link Path}'s
+     * @return The files
      */
-    @Internal
-    public List<Path> getMetadataFilesSpigot() {
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public ConfigurableFileCollection getMetadataFilesSpigot() {
         return _metadataFilesSpigot;
     }
 
     /**
-     * Gets the {@link Path}'s to the bungee {@link PluginMetadata} resolved by
-     * {@link #findExtraMetadataFiles(SourceSet)}.
+     * Gets the existing bungee {@link PluginMetadata} files to merge.
      *
-     * @return The {@link Path}'s
+     * @return The files
      */
-    @Internal
-    public List<Path> getMetadataFilesBungee() {
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public ConfigurableFileCollection getMetadataFilesBungee() {
         return _metadataFilesBungee;
     }
 
+    /**
+     * Gets the {@link WorkerExecutor} used to generate the metadata files.
+     *
+     * @return The {@link WorkerExecutor}
+     */
+    @Inject
+    public WorkerExecutor getWorkerExecutor() {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * {@inheritDoc}.
      */
     @TaskAction
-    void generateMetadata() throws IOException {
-        JavaPluginConvention java = getProject().getConvention().getPlugin(JavaPluginConvention.class);
-        findExtraMetadataFiles(java.getSourceSets().getByName("main"));
-
-        PluginMetadata metaDataSpigot = getMetadataSpigot();
-        if (_mergeMetadata) {
-            for (Path path : _metadataFilesSpigot) {
-                PluginMetadata metaData = PluginYml.read(path);
-                if (metaDataSpigot == null) {
-                    metaDataSpigot = metaData;
-                } else {
-                    metaDataSpigot.accept(metaData);
-                }
-            }
+    void generateMetadata() {
+        writePermissionIndex();
+        MetadataSnapshot spigot = _snapshotSpigot.getOrNull();
+        if (_permissionIndex && spigot instanceof MetadataSpigotSnapshot) {
+            // The server registers the permissions of the plugin.yml, which would clash with the index
+            spigot = ((MetadataSpigotSnapshot) spigot).withoutPermissions();
         }
-        PluginYml.write(getTargetSpigot(), metaDataSpigot);
-
-        PluginMetadata metaDataBungee = getMetadataBungee();
-        if (_mergeMetadata) {
-            for (Path path : _metadataFilesBungee) {
-                PluginMetadata metaData = PluginYml.read(path);
-                if (metaDataBungee == null) {
-                    metaDataBungee = metaData;
-                } else {
-                    metaDataBungee.accept(metaData);
-                }
+        submit(spigot, _metadataFilesSpigot, new ArrayList<>(_librariesSpigot.getOrElse(Collections.emptyList())),
+                getOuputFileSpigot());
+        submit(_snapshotBungee.getOrNull(), _metadataFilesBungee, new ArrayList<>(), getOuputFileBungee());
+    }
+
+    /**
+     * Submits the generation of a single metadata file to the
+     * {@link WorkerExecutor}.
+     *
+     * @param snapshot The {@link MetadataSnapshot} or null
+     * @param files The existing metadata files
+     * @param libraries The maven coordinates of the libraries
+     * @param target The file to write
+     */
+    private void submit(MetadataSnapshot snapshot, FileCollection files, List<String> libraries, File target) {
+        List<File> metadataFiles = sorted(files);
+        getWorkerExecutor().submit(GenerateMetadataAction.class, config -> {
+            config.setIsolationMode(IsolationMode.NONE);
+            config.setDisplayName("Generate " + target.getName());
+            config.params(snapshot, metadataFiles, _mergeMetadata, _streamMetadata, libraries, target);
+        });
+    }
+
+    /**
+     * Writes the {@link PermissionIndex} of the spigot permissions if enabled.
+     * A stale index is removed otherwise.
+     */
+    private void writePermissionIndex() {
+        Path index = getOuputFilePermissions().toPath();
+        try {
+            Files.deleteIfExists(index);
+            MetadataSnapshot snapshot = _snapshotSpigot.getOrNull();
+            if (!_permissionIndex || !(snapshot instanceof MetadataSpigotSnapshot)) {
+                return;
             }
+            PermissionIndex permissions = PermissionGraph.index(((MetadataSpigotSnapshot) snapshot).getPermissions());
+            try (OutputStream output = Files.newOutputStream(index)) {
+                permissions.write(output);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Could not generate " + PermissionIndex.RESOURCE, e);
         }
-        PluginYml.write(getTargetBungee(), metaDataBungee);
     }
 
     /**
-     * Searches in projects resources for existing plugin.yml und bungee.yml
-     * files.
+     * Sorts the given files by their path so they are merged in a stable
+     * order.
      *
-     * @param sourceSet The {@link SourceSet} to search in
+     * @param files The files to sort
+     * @return The sorted files
      */
-    private void findExtraMetadataFiles(SourceSet sourceSet) {
-        FileTree files;
-        files = sourceSet.getResources()
-                .matching(filterable -> filterable.include(PluginYml.FILENAME_SPIGOT));
-        for (File file : files.getFiles()) {
-            _metadataFilesSpigot.add(file.toPath().toAbsolutePath());
-        }
-        files = sourceSet.getResources()
-                .matching(filterable -> filterable.include(PluginYml.FILENAME_BUNGEE));
-        for (File file : files.getFiles()) {
-            _metadataFilesBungee.add(file.toPath().toAbsolutePath());
-        }
+    private static List<File> sorted(FileCollection files) {
+        return files.getFiles().stream().sorted(Comparator.comparing(File::getPath)).collect(Collectors.toCollection(ArrayList::new));
     }
 }
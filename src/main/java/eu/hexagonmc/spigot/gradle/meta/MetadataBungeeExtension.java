@@ -22,15 +22,16 @@
  */
 package eu.hexagonmc.spigot.gradle.meta;
 
-import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
 import eu.hexagonmc.spigot.gradle.SpigotGradle;
 import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
 
 public class MetadataBungeeExtension extends MetadataExtension {
 
     public static final String EXTENSION_NAME = "bungee";
 
-    private Object _author;
+    private final Project _project;
+    private final Property<String> _author;
 
     /**
      * Creates a new extension for the given project.
@@ -39,6 +40,8 @@ public class MetadataBungeeExtension extends MetadataExtension {
      */
     public MetadataBungeeExtension(Project project) {
         super(project);
+        _project = project;
+        _author = project.getObjects().property(String.class);
     }
 
     /**
@@ -47,7 +50,7 @@ public class MetadataBungeeExtension extends MetadataExtension {
      * @param author The author to set
      */
     public void author(Object author) {
-        _author = author;
+        _author.set(_project.provider(() -> SpigotGradle.resolveString(author)));
     }
 
     /**
@@ -56,19 +59,14 @@ public class MetadataBungeeExtension extends MetadataExtension {
      * @return The author set
      */
     public String author() {
-        return SpigotGradle.resolveString(_author);
+        return _author.getOrNull();
     }
 
     /**
      * {@inheritDoc}.
      */
     @Override
-    public void accept(PluginMetadata meta) {
-        super.accept(meta);
-        String author = author();
-        if (author != null) {
-            meta.getAuthors().clear();
-            meta.addAuthor(author());
-        }
+    public MetadataBungeeSnapshot snapshot() {
+        return new MetadataBungeeSnapshot(this);
     }
 }
@@ -0,0 +1,90 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.meta;
+
+import eu.hexagonmc.spigot.annotation.meta.DependencyType;
+import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
+
+import java.io.IOException;
+
+public class MetadataBungeeSnapshot extends MetadataSnapshot {
+
+    private static final long serialVersionUID = 8154620306914733529L;
+
+    private final String _author;
+
+    /**
+     * Creates a new snapshot of the values resolved from the given extension.
+     *
+     * @param extension The extension
+     */
+    MetadataBungeeSnapshot(MetadataBungeeExtension extension) {
+        super(extension);
+        _author = extension.author();
+    }
+
+    /**
+     * Gets the author resolved for this plugin.
+     *
+     * @return The author resolved
+     */
+    public String getAuthor() {
+        return _author;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void accept(PluginMetadata meta) {
+        super.accept(meta);
+        if (_author != null) {
+            meta.getAuthors().clear();
+            meta.addAuthor(_author);
+        }
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void write(MetadataWriter writer) throws IOException {
+        super.write(writer);
+        writer.value("author", _author);
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    protected String getDependencyKey(DependencyType type) {
+        switch (type.name()) {
+            case "DEPEND":
+                return "depends";
+            case "SOFTDEPEND":
+                return "softDepends";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.meta;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class MetadataCache {
+
+    private static final int MAX_ENTRIES = 256;
+    private static final MetadataCache INSTANCE = new MetadataCache();
+
+    private final Map<HashCode, PluginMetadata> _entries = new LinkedHashMap<HashCode, PluginMetadata>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = -2594706302640592367L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<HashCode, PluginMetadata> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private MetadataCache() {
+    }
+
+    /**
+     * Gets the {@link MetadataCache} shared by all projects using the same
+     * plugin class loader.
+     *
+     * @return The {@link MetadataCache}
+     */
+    public static MetadataCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reads the {@link PluginMetadata} of the given file. Files with a content
+     * already read before are not parsed again. The cached instance is never
+     * handed out, every call returns a copy the caller may modify.
+     *
+     * @param file The file to read
+     * @return The {@link PluginMetadata} or null if the file has no metadata
+     * @throws IOException If the file could not be read
+     */
+    public PluginMetadata read(File file) throws IOException {
+        HashCode hash = Files.asByteSource(file).hash(Hashing.sha256());
+        PluginMetadata meta;
+        synchronized (_entries) {
+            meta = _entries.get(hash);
+        }
+        if (meta == null) {
+            meta = PluginYml.read(file.toPath());
+            if (meta == null) {
+                return null;
+            }
+            synchronized (_entries) {
+                PluginMetadata existing = _entries.putIfAbsent(hash, meta);
+                meta = existing == null ? meta : existing;
+            }
+        }
+        return copy(meta);
+    }
+
+    private static PluginMetadata copy(PluginMetadata meta) {
+        // Merging into an empty instance copies all values
+        PluginMetadata copy = new PluginMetadata(meta.getName());
+        copy.accept(meta);
+        return copy;
+    }
+
+    /**
+     * Removes all cached {@link PluginMetadata}.
+     */
+    public void clear() {
+        synchronized (_entries) {
+            _entries.clear();
+        }
+    }
+}
@@ -29,6 +29,8 @@ import eu.hexagonmc.spigot.gradle.SpigotGradle;
 import groovy.lang.Closure;
 import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Project;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
 
 import java.util.Set;
 import java.util.function.Consumer;
@@ -36,10 +38,10 @@ import java.util.function.Consumer;
 public class MetadataExtension implements Consumer<PluginMetadata> {
 
     private final Project _project;
-    private Object _main;
-    private Object _name;
-    private Object _version;
-    private Object _description;
+    private final Property<String> _main;
+    private final Property<String> _name;
+    private final Property<String> _version;
+    private final Property<String> _description;
 
     private final NamedDomainObjectContainer<Dependency> _dependencies;
 
@@ -50,25 +52,14 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      */
     MetadataExtension(Project project) {
         _project = project;
-        _name = project.getName();
-        _version = new Closure<Object>(project) {
-
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            public Object call() {
-                return project.getVersion();
-            }
-        };
-        _description = new Closure<Object>(project) {
-
-            private static final long serialVersionUID = 7890495330828090621L;
-
-            @Override
-            public Object call() {
-                return project.getDescription();
-            }
-        };
+        ObjectFactory objects = project.getObjects();
+        _main = objects.property(String.class);
+        _name = objects.property(String.class);
+        _name.set(project.getName());
+        _version = objects.property(String.class);
+        _version.set(project.provider(() -> SpigotGradle.resolveString(project.getVersion())));
+        _description = objects.property(String.class);
+        _description.set(project.provider(() -> SpigotGradle.resolveString(project.getDescription())));
         _dependencies = project.container(Dependency.class, Dependency::new);
     }
 
@@ -78,7 +69,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      * @param main The main class to set
      */
     public void main(Object main) {
-        _main = main;
+        _main.set(_project.provider(() -> SpigotGradle.resolveString(main)));
     }
 
     /**
@@ -87,7 +78,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      * @return The main class set
      */
     public String main() {
-        return SpigotGradle.resolveString(_main);
+        return _main.getOrNull();
     }
 
     /**
@@ -96,7 +87,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      * @param name The name to set
      */
     public void name(Object name) {
-        _name = name;
+        _name.set(_project.provider(() -> SpigotGradle.resolveString(name)));
     }
 
     /**
@@ -105,7 +96,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      * @return The name set
      */
     public String name() {
-        return SpigotGradle.resolveString(_name);
+        return _name.getOrNull();
     }
 
     /**
@@ -114,7 +105,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      * @return The name set
      */
     public String getName() {
-        return SpigotGradle.resolveString(_name);
+        return _name.getOrNull();
     }
 
     /**
@@ -123,7 +114,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      * @param version The version to set
      */
     public void version(Object version) {
-        _version = version;
+        _version.set(_project.provider(() -> SpigotGradle.resolveString(version)));
     }
 
     /**
@@ -132,7 +123,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      * @return The version set
      */
     public String version() {
-        return SpigotGradle.resolveString(_version);
+        return _version.getOrNull();
     }
 
     /**
@@ -141,7 +132,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      * @param description The description to set
      */
     public void description(Object description) {
-        _description = description;
+        _description.set(_project.provider(() -> SpigotGradle.resolveString(description)));
     }
 
     /**
@@ -150,7 +141,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
      * @return The description set
      */
     public String description() {
-        return SpigotGradle.resolveString(_description);
+        return _description.getOrNull();
     }
 
     /**
@@ -201,25 +192,27 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
     }
 
     /**
-     * Applies this extension to an {@link PluginMetadata}.
+     * Resolves the values set for this plugin into an
+     * {@link MetadataSnapshot}.
+     *
+     * @return The {@link MetadataSnapshot}
+     */
+    public MetadataSnapshot snapshot() {
+        return new MetadataSnapshot(this);
+    }
+
+    /**
+     * Applies this extension to an {@link PluginMetadata}. All values are
+     * resolved exactly once through a {@link #snapshot()}.
      */
     @Override
     public void accept(PluginMetadata meta) {
-        String main = main();
-        if (main != null) {
-            meta.setMain(main());
-        }
-        meta.setName(name());
-        meta.setVersion(version());
-        meta.setDescription(description());
-        _dependencies.forEach(dep -> {
-            meta.addDependency(dep.build());
-        });
+        snapshot().accept(meta);
     }
 
     public static class Dependency {
 
-        private final Object _name;
+        private final String _name;
         private Object _type = DependencyType.DEPEND;
 
         /**
@@ -237,7 +230,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
          * @return The name set
          */
         public String name() {
-            return SpigotGradle.resolveString(_name);
+            return _name;
         }
 
         /**
@@ -246,7 +239,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
          * @return The name set
          */
         public String getName() {
-            return SpigotGradle.resolveString(_name);
+            return _name;
         }
 
         /**
@@ -273,9 +266,7 @@ public class MetadataExtension implements Consumer<PluginMetadata> {
          * @return The {@link PluginDependency}
          */
         public PluginDependency build() {
-            PluginDependency dep = new PluginDependency(name());
-            dep.setType(type());
-            return dep;
+            return new MetadataSnapshot.Dependency(this).build();
         }
     }
 }
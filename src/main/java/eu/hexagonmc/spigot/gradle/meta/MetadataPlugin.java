@@ -22,22 +22,52 @@
  */
 package eu.hexagonmc.spigot.gradle.meta;
 
-import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.ExtractRuntimeTask;
+import eu.hexagonmc.spigot.gradle.RuntimePlugin;
+import eu.hexagonmc.spigot.gradle.runtime.PermissionIndex;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
 import org.gradle.api.file.CopySpec;
+import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.plugins.ExtensionContainer;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MetadataPlugin implements Plugin<Project> {
 
+    public static final String TASK_NAME = "generateMetadata";
+    public static final String DISPATCHER_TASK_NAME = "generateCommandDispatcher";
+
+    private Provider<MetadataSpigotSnapshot> _spigotSnapshot;
+
+    /**
+     * Gets the provider of the spigot {@link MetadataSnapshot} of the
+     * project. It resolves the snapshot once per build and is shared with
+     * the tasks of this plugin.
+     *
+     * @return The {@link Provider} of the snapshot
+     */
+    public Provider<MetadataSpigotSnapshot> getSpigotSnapshot() {
+        return _spigotSnapshot;
+    }
+
     /**
      * {@inheritDoc}.
      */
     @Override
     public void apply(Project project) {
         project.getPlugins().apply("java-base");
+        project.getPlugins().apply(RuntimePlugin.class);
 
         ExtensionContainer extensions = project.getExtensions();
         final MetadataSpigotExtension spigotExtension;
@@ -55,22 +85,67 @@ public class MetadataPlugin implements Plugin<Project> {
         }
 
         TaskContainer tasks = project.getTasks();
-        GenerateMetadataTask genMeta = tasks.create("generateMetadata", GenerateMetadataTask.class);
+        Provider<MetadataSpigotSnapshot> spigotSnapshot = memoize(project, spigotExtension::snapshot);
+        _spigotSnapshot = spigotSnapshot;
+        Provider<MetadataBungeeSnapshot> bungeeSnapshot = memoize(project, bungeeExtension::snapshot);
+        TaskProvider<GenerateMetadataTask> genMeta = tasks.register(TASK_NAME, GenerateMetadataTask.class, task -> {
+            task.getSnapshotSpigot().set(spigotSnapshot);
+            task.getSnapshotBungee().set(bungeeSnapshot);
+        });
+        TaskProvider<GenerateCommandDispatcherTask> genDispatcher = tasks.register(DISPATCHER_TASK_NAME, GenerateCommandDispatcherTask.class,
+                task -> task.getSnapshot().set(spigotSnapshot));
 
-        genMeta.setProviderSpigot(() -> {
-            PluginMetadata meta = new PluginMetadata(spigotExtension.name());
-            spigotExtension.accept(meta);
-            return meta;
+        tasks.withType(ExtractRuntimeTask.class).named(RuntimePlugin.TASK_NAME).configure(task -> {
+            task.getHelpers().addAll(genMeta.map(generateMetadata -> generateMetadata.isPermissionIndex()
+                    ? Collections.singletonList(PermissionIndex.class.getName()) : Collections.<String>emptyList()));
         });
 
-        genMeta.setProviderBungee(() -> {
-            PluginMetadata meta = new PluginMetadata(bungeeExtension.name());
-            bungeeExtension.accept(meta);
-            return meta;
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            JavaPluginConvention java = project.getConvention().getPlugin(JavaPluginConvention.class);
+            SourceSet main = java.getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            SourceDirectorySet resources = main.getResources();
+            genMeta.configure(task -> {
+                task.getMetadataFilesSpigot().from(resources.matching(filterable -> filterable.include(PluginYml.FILENAME_SPIGOT)));
+                task.getMetadataFilesBungee().from(resources.matching(filterable -> filterable.include(PluginYml.FILENAME_BUNGEE)));
+            });
+
+            // Projects without a dispatcher class neither get the source dir nor the task dependency
+            main.getJava().srcDir((Callable<Object>) () -> genDispatcher.get().getClassName().isPresent()
+                    ? genDispatcher.get().getOutputDir() : Collections.emptyList());
+            tasks.named(JavaPlugin.COMPILE_JAVA_TASK_NAME).configure(compileJava -> compileJava.dependsOn((Callable<Object>) () ->
+                    genDispatcher.get().getClassName().isPresent() ? genDispatcher : Collections.emptyList()));
+
+            tasks.named(JavaPlugin.PROCESS_RESOURCES_TASK_NAME).configure(processResources -> {
+                CopySpec processResourcesCopySepc = (CopySpec) processResources;
+                processResourcesCopySepc.from(genMeta);
+            });
         });
+    }
 
-        Task processResources = tasks.getByName("processResources");
-        CopySpec processResourcesCopySepc = (CopySpec) processResources;
-        processResourcesCopySepc.from(genMeta);
+    /**
+     * Creates a provider which resolves the given snapshot only once after
+     * the task graph is ready. The task inputs and the task action then share
+     * the same snapshot and every {@link groovy.lang.Closure} of the
+     * extensions is called once per build.
+     *
+     * @param project The project
+     * @param resolver The resolver of the snapshot
+     * @return The {@link Provider} of the snapshot
+     */
+    private static <T> Provider<T> memoize(Project project, Callable<T> resolver) {
+        AtomicBoolean ready = new AtomicBoolean();
+        AtomicReference<T> resolved = new AtomicReference<>();
+        project.getGradle().getTaskGraph().whenReady(graph -> ready.set(true));
+        return project.provider(() -> {
+            if (!ready.get()) {
+                return resolver.call();
+            }
+            T value = resolved.get();
+            if (value == null) {
+                value = resolver.call();
+                resolved.set(value);
+            }
+            return value;
+        });
     }
 }
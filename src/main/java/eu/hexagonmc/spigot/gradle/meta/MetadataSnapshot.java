@@ -0,0 +1,233 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.meta;
+
+import eu.hexagonmc.spigot.annotation.meta.DependencyType;
+import eu.hexagonmc.spigot.annotation.meta.PluginDependency;
+import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+public class MetadataSnapshot implements Consumer<PluginMetadata>, Serializable {
+
+    private static final long serialVersionUID = 3418803473641745367L;
+
+    private final String _main;
+    private final String _name;
+    private final String _version;
+    private final String _description;
+    private final List<Dependency> _dependencies;
+
+    /**
+     * Creates a new snapshot of the values resolved from the given extension.
+     *
+     * @param extension The extension
+     */
+    MetadataSnapshot(MetadataExtension extension) {
+        _main = extension.main();
+        _name = extension.name();
+        _version = extension.version();
+        _description = extension.description();
+        List<Dependency> dependencies = new ArrayList<>();
+        extension.dependencies().forEach(dep -> {
+            dependencies.add(new Dependency(dep));
+        });
+        dependencies.sort(Comparator.comparing(Dependency::getName));
+        _dependencies = Collections.unmodifiableList(dependencies);
+    }
+
+    /**
+     * Creates a copy of the given snapshot.
+     *
+     * @param snapshot The snapshot to copy
+     */
+    MetadataSnapshot(MetadataSnapshot snapshot) {
+        _main = snapshot._main;
+        _name = snapshot._name;
+        _version = snapshot._version;
+        _description = snapshot._description;
+        _dependencies = snapshot._dependencies;
+    }
+
+    /**
+     * Gets the main class resolved for this plugin.
+     *
+     * @return The main class resolved
+     */
+    public String getMain() {
+        return _main;
+    }
+
+    /**
+     * Gets the name resolved for this plugin.
+     *
+     * @return The name resolved
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * Gets the version resolved for this plugin.
+     *
+     * @return The version resolved
+     */
+    public String getVersion() {
+        return _version;
+    }
+
+    /**
+     * Gets the description resolved for this plugin.
+     *
+     * @return The description resolved
+     */
+    public String getDescription() {
+        return _description;
+    }
+
+    /**
+     * Gets the dependencies resolved for this plugin.
+     *
+     * @return The dependencies resolved
+     */
+    public List<Dependency> getDependencies() {
+        return _dependencies;
+    }
+
+    /**
+     * Builds a {@link PluginMetadata} of this snapshot.
+     *
+     * @return The {@link PluginMetadata}
+     */
+    public PluginMetadata build() {
+        PluginMetadata meta = new PluginMetadata(_name);
+        accept(meta);
+        return meta;
+    }
+
+    /**
+     * Applies this snapshot to an {@link PluginMetadata}.
+     */
+    @Override
+    public void accept(PluginMetadata meta) {
+        if (_main != null) {
+            meta.setMain(_main);
+        }
+        meta.setName(_name);
+        meta.setVersion(_version);
+        meta.setDescription(_description);
+        _dependencies.forEach(dep -> {
+            meta.addDependency(dep.build());
+        });
+    }
+
+    /**
+     * Streams this snapshot to an {@link MetadataWriter} without building an
+     * {@link PluginMetadata} first.
+     *
+     * @param writer The {@link MetadataWriter}
+     * @throws IOException If the snapshot could not be written
+     */
+    public void write(MetadataWriter writer) throws IOException {
+        writer.value("name", _name)
+                .value("version", _version)
+                .value("description", _description)
+                .value("main", _main);
+        for (DependencyType type : DependencyType.values()) {
+            String key = getDependencyKey(type);
+            if (key != null) {
+                List<String> names = new ArrayList<>();
+                _dependencies.forEach(dep -> {
+                    if (dep.getType() == type) {
+                        names.add(dep.getName());
+                    }
+                });
+                writer.list(key, names);
+            }
+        }
+    }
+
+    /**
+     * Gets the key the dependencies of the given type are written to.
+     *
+     * @param type The {@link DependencyType}
+     * @return The key or null if the type is not supported
+     */
+    protected String getDependencyKey(DependencyType type) {
+        return type.name().toLowerCase(Locale.ROOT);
+    }
+
+    public static class Dependency implements Serializable {
+
+        private static final long serialVersionUID = -2286390416150497431L;
+
+        private final String _name;
+        private final DependencyType _type;
+
+        /**
+         * Creates a new snapshot of the given plugin dependency.
+         *
+         * @param dependency The dependency
+         */
+        Dependency(MetadataExtension.Dependency dependency) {
+            _name = dependency.name();
+            _type = dependency.type();
+        }
+
+        /**
+         * Gets the name resolved for this dependency.
+         *
+         * @return The name resolved
+         */
+        public String getName() {
+            return _name;
+        }
+
+        /**
+         * Gets the type resolved for this dependency.
+         *
+         * @return The type resolved
+         */
+        public DependencyType getType() {
+            return _type;
+        }
+
+        /**
+         * Builds a {@link PluginDependency} of this snapshot.
+         *
+         * @return The {@link PluginDependency}
+         */
+        public PluginDependency build() {
+            PluginDependency dep = new PluginDependency(_name);
+            dep.setType(_type);
+            return dep;
+        }
+    }
+}
@@ -25,14 +25,17 @@ package eu.hexagonmc.spigot.gradle.meta;
 import eu.hexagonmc.spigot.annotation.meta.LoadOn;
 import eu.hexagonmc.spigot.annotation.meta.PermissionDefault;
 import eu.hexagonmc.spigot.annotation.meta.PluginCommand;
-import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
 import eu.hexagonmc.spigot.annotation.meta.PluginPermission;
 import eu.hexagonmc.spigot.gradle.SpigotGradle;
 import groovy.lang.Closure;
 import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Project;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -42,11 +45,11 @@ public class MetadataSpigotExtension extends MetadataExtension {
     public static final String EXTENSION_NAME = "spigot";
 
     private final Project _project;
-    private Object _load;
-    private final List<Object> _authors = new ArrayList<>();
-    private Object _website;
-    private Object _database;
-    private Object _prefix;
+    private final Property<LoadOn> _load;
+    private final ListProperty<String> _authors;
+    private final Property<String> _website;
+    private final Property<Boolean> _database;
+    private final Property<String> _prefix;
     private final NamedDomainObjectContainer<Command> _commands;
     private final NamedDomainObjectContainer<Permission> _permissions;
 
@@ -58,19 +61,19 @@ public class MetadataSpigotExtension extends MetadataExtension {
     public MetadataSpigotExtension(Project project) {
         super(project);
         _project = project;
-        _website = new Closure<Object>(project) {
-
-            private static final long serialVersionUID = 1860033356463917877L;
-
-            @Override
-            public Object call() {
-                Object website = project.findProperty("url");
-                if (website == null) {
-                    website = project.findProperty("website");
-                }
-                return website;
+        ObjectFactory objects = project.getObjects();
+        _load = objects.property(LoadOn.class);
+        _authors = objects.listProperty(String.class);
+        _website = objects.property(String.class);
+        _website.set(project.provider(() -> {
+            Object website = project.findProperty("url");
+            if (website == null) {
+                website = project.findProperty("website");
             }
-        };
+            return SpigotGradle.resolveString(website);
+        }));
+        _database = objects.property(Boolean.class);
+        _prefix = objects.property(String.class);
         _commands = project.container(Command.class, Command::new);
         _permissions = project.container(Permission.class, name -> new Permission(project, name));
     }
@@ -82,7 +85,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @see LoadOn
      */
     public void load(Object load) {
-        _load = load;
+        _load.set(_project.provider(() -> SpigotGradle.resolveLoad(load)));
     }
 
     /**
@@ -92,7 +95,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @see LoadOn
      */
     public LoadOn load() {
-        return SpigotGradle.resolveLoad(_load);
+        return _load.getOrNull();
     }
 
     /**
@@ -101,7 +104,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @param author The author to add
      */
     public void author(Object author) {
-        _authors.add(author);
+        _authors.add(_project.provider(() -> SpigotGradle.resolveString(author)));
     }
 
     /**
@@ -111,7 +114,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @see List
      */
     public List<String> authors() {
-        return _authors.stream().map(SpigotGradle::resolveString).collect(Collectors.toList());
+        return new ArrayList<>(_authors.getOrElse(Collections.emptyList()));
     }
 
     /**
@@ -120,7 +123,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @param website The website to set
      */
     public void website(Object website) {
-        _website = website;
+        _website.set(_project.provider(() -> SpigotGradle.resolveString(website)));
     }
 
     /**
@@ -129,7 +132,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @return The website set
      */
     public String website() {
-        return SpigotGradle.resolveString(_website);
+        return _website.getOrNull();
     }
 
     /**
@@ -138,7 +141,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @param database True if database is used false otherwise
      */
     public void database(Object database) {
-        _database = database;
+        _database.set(_project.provider(() -> SpigotGradle.resolveBoolean(database)));
     }
 
     /**
@@ -147,7 +150,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @return True if database is used false otherwise
      */
     public Boolean database() {
-        return SpigotGradle.resolveBoolean(_database);
+        return _database.getOrNull();
     }
 
     /**
@@ -156,7 +159,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @param prefix The logging prefix to set
      */
     public void prefix(Object prefix) {
-        _prefix = prefix;
+        _prefix.set(_project.provider(() -> SpigotGradle.resolveString(prefix)));
     }
 
     /**
@@ -165,7 +168,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * @return The logging prefix set
      */
     public String prefix() {
-        return SpigotGradle.resolveString(_prefix);
+        return _prefix.getOrNull();
     }
 
     /**
@@ -246,25 +249,13 @@ public class MetadataSpigotExtension extends MetadataExtension {
      * {@inheritDoc}.
      */
     @Override
-    public void accept(PluginMetadata meta) {
-        super.accept(meta);
-        meta.setLoadOn(load());
-        meta.getAuthors().clear();
-        authors().forEach(meta::addAuthor);
-        meta.setWebsite(website());
-        meta.setDatabase(database());
-        meta.setPrefix(prefix());
-        _commands.forEach(command -> {
-            meta.addCommand(command.build());
-        });
-        _permissions.forEach(permission -> {
-            meta.addPermission(permission.build());
-        });
+    public MetadataSpigotSnapshot snapshot() {
+        return new MetadataSpigotSnapshot(this);
     }
 
     public static class Command {
 
-        private final Object _name;
+        private final String _name;
         private Object _description;
         private final List<Object> _aliases = new ArrayList<>();
         private Object _permission;
@@ -285,7 +276,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
          * @return The name set
          */
         public String name() {
-            return SpigotGradle.resolveString(_name);
+            return _name;
         }
 
         /**
@@ -294,7 +285,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
          * @return The name set
          */
         public String getName() {
-            return SpigotGradle.resolveString(_name);
+            return _name;
         }
 
         /**
@@ -375,19 +366,14 @@ public class MetadataSpigotExtension extends MetadataExtension {
          * @return The {@link PluginCommand}
          */
         public PluginCommand build() {
-            PluginCommand command = new PluginCommand(name());
-            command.setDescription(description());
-            aliases().forEach(command::addAlias);
-            command.setPermission(permission());
-            command.setUsage(usage());
-            return command;
+            return new MetadataSpigotSnapshot.Command(this).build();
         }
     }
 
     public static class Permission {
 
         private final Project _project;
-        private final Object _name;
+        private final String _name;
         private Object _description;
         private Object _value = PermissionDefault.TRUE;
         private final NamedDomainObjectContainer<Child> _childs;
@@ -409,7 +395,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
          * @return The name set
          */
         public String name() {
-            return SpigotGradle.resolveString(_name);
+            return _name;
         }
 
         /**
@@ -418,7 +404,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
          * @return The name set
          */
         public String getName() {
-            return SpigotGradle.resolveString(_name);
+            return _name;
         }
 
         /**
@@ -510,18 +496,12 @@ public class MetadataSpigotExtension extends MetadataExtension {
          * @return The {@link PluginPermission}
          */
         public PluginPermission build() {
-            PluginPermission permission = new PluginPermission(name());
-            permission.setDefault(value());
-            permission.setDescription(description());
-            _childs.forEach(child -> {
-                permission.addChild(child.name(), child.value());
-            });
-            return permission;
+            return new MetadataSpigotSnapshot.Permission(this).build();
         }
 
         public static class Child {
 
-            private final Object _name;
+            private final String _name;
             private Object _value = true;
 
             /**
@@ -539,7 +519,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
              * @return The name set
              */
             public String name() {
-                return SpigotGradle.resolveString(_name);
+                return _name;
             }
 
             /**
@@ -548,7 +528,7 @@ public class MetadataSpigotExtension extends MetadataExtension {
              * @return The name set
              */
             public String getName() {
-                return SpigotGradle.resolveString(_name);
+                return _name;
             }
 
             /**
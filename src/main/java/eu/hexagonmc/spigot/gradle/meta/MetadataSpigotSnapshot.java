@@ -0,0 +1,439 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.meta;
+
+import eu.hexagonmc.spigot.annotation.meta.LoadOn;
+import eu.hexagonmc.spigot.annotation.meta.PermissionDefault;
+import eu.hexagonmc.spigot.annotation.meta.PluginCommand;
+import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
+import eu.hexagonmc.spigot.annotation.meta.PluginPermission;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+public class MetadataSpigotSnapshot extends MetadataSnapshot {
+
+    private static final long serialVersionUID = -6712047352089213614L;
+
+    private final LoadOn _load;
+    private final List<String> _authors;
+    private final String _website;
+    private final Boolean _database;
+    private final String _prefix;
+    private final List<Command> _commands;
+    private final List<Permission> _permissions;
+
+    /**
+     * Creates a new snapshot of the values resolved from the given extension.
+     *
+     * @param extension The extension
+     */
+    MetadataSpigotSnapshot(MetadataSpigotExtension extension) {
+        super(extension);
+        _load = extension.load();
+        _authors = Collections.unmodifiableList(extension.authors());
+        _website = extension.website();
+        _database = extension.database();
+        _prefix = extension.prefix();
+        List<Command> commands = new ArrayList<>();
+        extension.commands().forEach(command -> {
+            commands.add(new Command(command));
+        });
+        commands.sort(Comparator.comparing(Command::getName));
+        _commands = Collections.unmodifiableList(commands);
+        List<Permission> permissions = new ArrayList<>();
+        extension.permissions().forEach(permission -> {
+            permissions.add(new Permission(permission));
+        });
+        permissions.sort(Comparator.comparing(Permission::getName));
+        _permissions = Collections.unmodifiableList(permissions);
+    }
+
+    /**
+     * Creates a copy of the given snapshot with the given permissions.
+     *
+     * @param snapshot The snapshot to copy
+     * @param permissions The permissions of the copy
+     */
+    private MetadataSpigotSnapshot(MetadataSpigotSnapshot snapshot, List<Permission> permissions) {
+        super(snapshot);
+        _load = snapshot._load;
+        _authors = snapshot._authors;
+        _website = snapshot._website;
+        _database = snapshot._database;
+        _prefix = snapshot._prefix;
+        _commands = snapshot._commands;
+        _permissions = permissions;
+    }
+
+    /**
+     * Creates a copy of this snapshot without permissions, used when the
+     * permissions are registered from a {@link eu.hexagonmc.spigot.gradle.runtime.PermissionIndex}
+     * instead of the plugin.yml.
+     *
+     * @return The copy
+     */
+    MetadataSpigotSnapshot withoutPermissions() {
+        return new MetadataSpigotSnapshot(this, Collections.emptyList());
+    }
+
+    /**
+     * Gets the load stage resolved for this plugin.
+     *
+     * @return The load stage resolved
+     * @see LoadOn
+     */
+    public LoadOn getLoad() {
+        return _load;
+    }
+
+    /**
+     * Gets the authors resolved for this plugin.
+     *
+     * @return The authors resolved
+     */
+    public List<String> getAuthors() {
+        return _authors;
+    }
+
+    /**
+     * Gets the website resolved for this plugin.
+     *
+     * @return The website resolved
+     */
+    public String getWebsite() {
+        return _website;
+    }
+
+    /**
+     * Gets if this plugin uses database.
+     *
+     * @return True if database is used false otherwise
+     */
+    public Boolean getDatabase() {
+        return _database;
+    }
+
+    /**
+     * Gets the logging prefix resolved for this plugin.
+     *
+     * @return The logging prefix resolved
+     */
+    public String getPrefix() {
+        return _prefix;
+    }
+
+    /**
+     * Gets the commands resolved for this plugin.
+     *
+     * @return The commands resolved
+     */
+    public List<Command> getCommands() {
+        return _commands;
+    }
+
+    /**
+     * Gets the permissions resolved for this plugin.
+     *
+     * @return The permissions resolved
+     */
+    public List<Permission> getPermissions() {
+        return _permissions;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void accept(PluginMetadata meta) {
+        super.accept(meta);
+        meta.setLoadOn(_load);
+        meta.getAuthors().clear();
+        _authors.forEach(meta::addAuthor);
+        meta.setWebsite(_website);
+        meta.setDatabase(_database);
+        meta.setPrefix(_prefix);
+        _commands.forEach(command -> {
+            meta.addCommand(command.build());
+        });
+        _permissions.forEach(permission -> {
+            meta.addPermission(permission.build());
+        });
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void write(MetadataWriter writer) throws IOException {
+        super.write(writer);
+        writer.value("load", _load)
+                .list("authors", _authors)
+                .value("website", _website)
+                .value("database", _database)
+                .value("prefix", _prefix)
+                .section("commands", _commands, (out, command) -> command.write(out))
+                .section("permissions", _permissions, (out, permission) -> permission.write(out));
+    }
+
+    public static class Command implements Serializable {
+
+        private static final long serialVersionUID = 5079612448340766209L;
+
+        private final String _name;
+        private final String _description;
+        private final List<String> _aliases;
+        private final String _permission;
+        private final String _usage;
+
+        /**
+         * Creates a new snapshot of the given plugin command.
+         *
+         * @param command The command
+         */
+        Command(MetadataSpigotExtension.Command command) {
+            _name = command.name();
+            _description = command.description();
+            _aliases = Collections.unmodifiableList(command.aliases());
+            _permission = command.permission();
+            _usage = command.usage();
+        }
+
+        /**
+         * Gets the name resolved for this command.
+         *
+         * @return The name resolved
+         */
+        public String getName() {
+            return _name;
+        }
+
+        /**
+         * Gets the description resolved for this command.
+         *
+         * @return The description resolved
+         */
+        public String getDescription() {
+            return _description;
+        }
+
+        /**
+         * Gets the aliases resolved for this command.
+         *
+         * @return The aliases resolved
+         */
+        public List<String> getAliases() {
+            return _aliases;
+        }
+
+        /**
+         * Gets the permission resolved for this command.
+         *
+         * @return The permission resolved
+         */
+        public String getPermission() {
+            return _permission;
+        }
+
+        /**
+         * Gets the usage resolved for this command.
+         *
+         * @return The usage resolved
+         */
+        public String getUsage() {
+            return _usage;
+        }
+
+        /**
+         * Builds a {@link PluginCommand} of this snapshot.
+         *
+         * @return The {@link PluginCommand}
+         */
+        public PluginCommand build() {
+            PluginCommand command = new PluginCommand(_name);
+            command.setDescription(_description);
+            _aliases.forEach(command::addAlias);
+            command.setPermission(_permission);
+            command.setUsage(_usage);
+            return command;
+        }
+
+        /**
+         * Streams this command to an {@link MetadataWriter}.
+         *
+         * @param writer The {@link MetadataWriter}
+         * @throws IOException If the command could not be written
+         */
+        public void write(MetadataWriter writer) throws IOException {
+            writer.begin(_name)
+                    .value("description", _description)
+                    .list("aliases", _aliases)
+                    .value("permission", _permission)
+                    .value("usage", _usage)
+                    .end();
+        }
+    }
+
+    public static class Permission implements Serializable {
+
+        private static final long serialVersionUID = 2735431268553312042L;
+
+        private final String _name;
+        private final String _description;
+        private final PermissionDefault _value;
+        private final List<Child> _childs;
+
+        /**
+         * Creates a new snapshot of the given plugin permission.
+         *
+         * @param permission The permission
+         */
+        Permission(MetadataSpigotExtension.Permission permission) {
+            _name = permission.name();
+            _description = permission.description();
+            _value = permission.value();
+            List<Child> childs = new ArrayList<>();
+            permission.childs().forEach(child -> {
+                childs.add(new Child(child));
+            });
+            childs.sort(Comparator.comparing(Child::getName));
+            _childs = Collections.unmodifiableList(childs);
+        }
+
+        /**
+         * Gets the name resolved for this permission.
+         *
+         * @return The name resolved
+         */
+        public String getName() {
+            return _name;
+        }
+
+        /**
+         * Gets the description resolved for this permission.
+         *
+         * @return The description resolved
+         */
+        public String getDescription() {
+            return _description;
+        }
+
+        /**
+         * Gets the default value resolved for this permission.
+         *
+         * @return The default value resolved
+         */
+        public PermissionDefault getValue() {
+            return _value;
+        }
+
+        /**
+         * Gets the default value resolved for this permission as written to
+         * the plugin.yml, e.g. "op" or "not op".
+         *
+         * @return The default value resolved or null
+         */
+        String getDefaultName() {
+            return _value == null ? null : _value.name().toLowerCase(Locale.ROOT).replace('_', ' ');
+        }
+
+        /**
+         * Gets the childs resolved for this permission.
+         *
+         * @return The childs resolved
+         */
+        public List<Child> getChilds() {
+            return _childs;
+        }
+
+        /**
+         * Builds a {@link PluginPermission} of this snapshot.
+         *
+         * @return The {@link PluginPermission}
+         */
+        public PluginPermission build() {
+            PluginPermission permission = new PluginPermission(_name);
+            permission.setDefault(_value);
+            permission.setDescription(_description);
+            _childs.forEach(child -> {
+                permission.addChild(child.getName(), child.getValue());
+            });
+            return permission;
+        }
+
+        /**
+         * Streams this permission to an {@link MetadataWriter}.
+         *
+         * @param writer The {@link MetadataWriter}
+         * @throws IOException If the permission could not be written
+         */
+        public void write(MetadataWriter writer) throws IOException {
+            writer.begin(_name)
+                    .value("description", _description)
+                    .value("default", getDefaultName())
+                    .section("children", _childs, (out, child) -> out.value(child.getName(), child.getValue()))
+                    .end();
+        }
+
+        public static class Child implements Serializable {
+
+            private static final long serialVersionUID = -4108632760923745583L;
+
+            private final String _name;
+            private final Boolean _value;
+
+            /**
+             * Creates a new snapshot of the given plugin permission child.
+             *
+             * @param child The child
+             */
+            Child(MetadataSpigotExtension.Permission.Child child) {
+                _name = child.name();
+                _value = child.value();
+            }
+
+            /**
+             * Gets the name resolved for this permission child.
+             *
+             * @return The name resolved
+             */
+            public String getName() {
+                return _name;
+            }
+
+            /**
+             * Gets the default value resolved for this permission child.
+             *
+             * @return The default value resolved
+             */
+            public Boolean getValue() {
+                return _value;
+            }
+        }
+    }
+}
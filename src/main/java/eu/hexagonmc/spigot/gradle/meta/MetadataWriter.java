@@ -0,0 +1,255 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.meta;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public class MetadataWriter implements Closeable {
+
+    private static final Pattern PLAIN_KEY = Pattern.compile("[A-Za-z][A-Za-z0-9_.\\-]*");
+    private static final Set<String> RESERVED_KEYS = new HashSet<>(Arrays.asList(
+            "y", "yes", "n", "no", "true", "false", "on", "off", "null"));
+
+    private final Writer _writer;
+    private int _depth;
+
+    /**
+     * Creates a new writer streaming to the given file.
+     *
+     * @param target The file to write
+     * @throws IOException If the file could not be opened
+     */
+    public MetadataWriter(Path target) throws IOException {
+        this(Files.newBufferedWriter(target, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a new writer streaming to the given {@link Writer}.
+     *
+     * @param writer The {@link Writer}
+     */
+    public MetadataWriter(Writer writer) {
+        _writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+    }
+
+    /**
+     * Appends a list of values to the given file, for values which are not
+     * part of the {@link eu.hexagonmc.spigot.annotation.meta.PluginMetadata}.
+     * Nothing is written if the list is empty.
+     *
+     * @param target The file to append to
+     * @param key The key of the list
+     * @param values The values
+     * @throws IOException If the list could not be written
+     */
+    public static void append(Path target, String key, Collection<?> values) throws IOException {
+        if (values.isEmpty()) {
+            return;
+        }
+        try (MetadataWriter writer = new MetadataWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8, StandardOpenOption.APPEND))) {
+            writer.list(key, values);
+        }
+    }
+
+    /**
+     * Writes a single value. Nothing is written if the value is null.
+     * {@link String} values are quoted, all other values are written as is.
+     *
+     * @param key The key of the value
+     * @param value The value or null
+     * @return This writer
+     * @throws IOException If the value could not be written
+     */
+    public MetadataWriter value(String key, Object value) throws IOException {
+        if (value != null) {
+            indent();
+            key(key);
+            _writer.write(": ");
+            scalar(value);
+            _writer.write('\n');
+        }
+        return this;
+    }
+
+    /**
+     * Writes a list of values. Nothing is written if the list is null or
+     * empty.
+     *
+     * @param key The key of the list
+     * @param values The values or null
+     * @return This writer
+     * @throws IOException If the list could not be written
+     */
+    public MetadataWriter list(String key, Collection<?> values) throws IOException {
+        if (values != null && !values.isEmpty()) {
+            indent();
+            key(key);
+            _writer.write(":\n");
+            for (Object value : values) {
+                indent();
+                _writer.write("- ");
+                scalar(value);
+                _writer.write('\n');
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Begins a nested section. Each section has to be closed with
+     * {@link #end()}.
+     *
+     * @param key The key of the section
+     * @return This writer
+     * @throws IOException If the section could not be written
+     */
+    public MetadataWriter begin(String key) throws IOException {
+        indent();
+        key(key);
+        _writer.write(":\n");
+        _depth++;
+        return this;
+    }
+
+    /**
+     * Ends the current nested section.
+     *
+     * @return This writer
+     */
+    public MetadataWriter end() {
+        if (_depth == 0) {
+            throw new IllegalStateException("No section to end");
+        }
+        _depth--;
+        return this;
+    }
+
+    /**
+     * Writes a section of named entries. Nothing is written if there are no
+     * entries.
+     *
+     * @param <T> The type of the entries
+     * @param key The key of the section
+     * @param entries The entries
+     * @param entry The writer of a single entry
+     * @return This writer
+     * @throws IOException If the section could not be written
+     */
+    public <T> MetadataWriter section(String key, List<T> entries, Entry<T> entry) throws IOException {
+        if (!entries.isEmpty()) {
+            begin(key);
+            for (T value : entries) {
+                entry.write(this, value);
+            }
+            end();
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void close() throws IOException {
+        _writer.close();
+    }
+
+    private void indent() throws IOException {
+        for (int i = 0; i < _depth; i++) {
+            _writer.write("  ");
+        }
+    }
+
+    private void key(String key) throws IOException {
+        if (PLAIN_KEY.matcher(key).matches() && !RESERVED_KEYS.contains(key.toLowerCase(Locale.ROOT))) {
+            _writer.write(key);
+        } else {
+            quoted(key);
+        }
+    }
+
+    private void scalar(Object value) throws IOException {
+        if (value instanceof String) {
+            quoted((String) value);
+        } else {
+            _writer.write(value.toString());
+        }
+    }
+
+    private void quoted(String value) throws IOException {
+        _writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    _writer.write("\\\"");
+                    break;
+                case '\\':
+                    _writer.write("\\\\");
+                    break;
+                case '\n':
+                    _writer.write("\\n");
+                    break;
+                case '\r':
+                    _writer.write("\\r");
+                    break;
+                case '\t':
+                    _writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        _writer.write(String.format("\\x%02x", (int) c));
+                    } else {
+                        _writer.write(c);
+                    }
+            }
+        }
+        _writer.write('"');
+    }
+
+    public interface Entry<T> {
+
+        /**
+         * Writes a single entry of a section.
+         *
+         * @param writer The {@link MetadataWriter}
+         * @param value The entry to write
+         * @throws IOException If the entry could not be written
+         */
+        void write(MetadataWriter writer, T value) throws IOException;
+    }
+}
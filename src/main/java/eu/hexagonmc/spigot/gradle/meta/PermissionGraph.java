@@ -0,0 +1,145 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.meta;
+
+import eu.hexagonmc.spigot.gradle.meta.MetadataSpigotSnapshot.Permission;
+import eu.hexagonmc.spigot.gradle.meta.MetadataSpigotSnapshot.Permission.Child;
+import eu.hexagonmc.spigot.gradle.runtime.PermissionIndex;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class PermissionGraph {
+
+    private final Map<String, Permission> _permissions = new HashMap<>();
+    private final Map<String, Map<String, Boolean>> _closures = new HashMap<>();
+
+    /**
+     * Creates a new graph of the given permissions.
+     *
+     * @param permissions The permissions
+     */
+    private PermissionGraph(List<Permission> permissions) {
+        permissions.forEach(permission -> {
+            _permissions.put(permission.getName(), permission);
+        });
+    }
+
+    /**
+     * Flattens the given permissions into an {@link PermissionIndex}. The
+     * children of each permission are replaced by the transitive closure of
+     * its children. A child with the value false inverts the values of its
+     * own children, like the server does when attaching permissions.
+     *
+     * @param permissions The permissions
+     * @return The {@link PermissionIndex}
+     * @throws GradleException If the children contain a cycle
+     */
+    @SuppressWarnings("unchecked")
+    static PermissionIndex index(List<Permission> permissions) {
+        PermissionGraph graph = new PermissionGraph(permissions);
+        int size = permissions.size();
+        String[] names = new String[size];
+        String[] descriptions = new String[size];
+        String[] defaults = new String[size];
+        Map<String, Boolean>[] children = new Map[size];
+        for (int i = 0; i < size; i++) {
+            Permission permission = permissions.get(i);
+            names[i] = permission.getName();
+            descriptions[i] = permission.getDescription();
+            defaults[i] = permission.getDefaultName();
+            children[i] = graph.closure(permission);
+        }
+        return new PermissionIndex(names, descriptions, defaults, children);
+    }
+
+    /**
+     * Computes the transitive children of the given permission. The graph is
+     * walked iteratively so deep hierarchies do not overflow the stack.
+     *
+     * @param root The permission
+     * @return The transitive children
+     */
+    private Map<String, Boolean> closure(Permission root) {
+        Deque<Permission> stack = new ArrayDeque<>();
+        Set<String> visiting = new HashSet<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Permission current = stack.peek();
+            if (_closures.containsKey(current.getName())) {
+                stack.pop();
+            } else if (visiting.add(current.getName())) {
+                for (Child child : current.getChilds()) {
+                    Permission next = _permissions.get(child.getName());
+                    if (next == null || _closures.containsKey(next.getName())) {
+                        continue;
+                    }
+                    if (visiting.contains(next.getName())) {
+                        throw new GradleException("Permission cycle detected between " + current.getName() + " and " + next.getName());
+                    }
+                    stack.push(next);
+                }
+            } else {
+                _closures.put(current.getName(), Collections.unmodifiableMap(merge(current)));
+                visiting.remove(current.getName());
+                stack.pop();
+            }
+        }
+        return _closures.get(root.getName());
+    }
+
+    /**
+     * Merges the direct children of the given permission with the already
+     * computed closures of these children. Direct children take precedence.
+     *
+     * @param permission The permission
+     * @return The transitive children
+     */
+    private Map<String, Boolean> merge(Permission permission) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        for (Child child : permission.getChilds()) {
+            result.put(child.getName(), !Boolean.FALSE.equals(child.getValue()));
+        }
+        for (Child child : permission.getChilds()) {
+            Map<String, Boolean> closure = _closures.get(child.getName());
+            if (closure == null) {
+                continue;
+            }
+            boolean value = result.get(child.getName());
+            closure.forEach((name, childValue) -> {
+                if (!name.equals(permission.getName())) {
+                    result.putIfAbsent(name, value == childValue);
+                }
+            });
+        }
+        return result;
+    }
+}
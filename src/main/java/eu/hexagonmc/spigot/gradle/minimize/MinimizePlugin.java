@@ -0,0 +1,67 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.minimize;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+
+public class MinimizePlugin implements Plugin<Project> {
+
+    public static final String TASK_NAME = "minimizePluginJar";
+    private static final String SHADOW_PLUGIN_ID = "com.github.johnrengelman.shadow";
+    private static final String SHADOW_TASK_NAME = "shadowJar";
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        TaskContainer tasks = project.getTasks();
+        TaskProvider<MinimizePluginJarTask> minimize = tasks.register(TASK_NAME, MinimizePluginJarTask.class, task -> {
+            task.setGroup("build");
+            task.setDescription("Strips the classes and resources of the plugin jar which are not reachable from the plugin.");
+        });
+
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            from(project, minimize, tasks.withType(AbstractArchiveTask.class).named(JavaPlugin.JAR_TASK_NAME));
+        });
+        // Shaded dependencies are the main reason to minimize, so prefer the shadow jar
+        project.getPlugins().withId(SHADOW_PLUGIN_ID, plugin -> {
+            from(project, minimize, tasks.withType(AbstractArchiveTask.class).named(SHADOW_TASK_NAME));
+        });
+    }
+
+    private static void from(Project project, TaskProvider<MinimizePluginJarTask> minimize, TaskProvider<AbstractArchiveTask> archive) {
+        ProjectLayout layout = project.getLayout();
+        minimize.configure(task -> {
+            task.dependsOn(archive);
+            task.getInputJar().set(layout.file(archive.map(AbstractArchiveTask::getArchivePath)));
+            task.getOutputJar().set(layout.getBuildDirectory().file(archive.map(jar -> "libs/minimized/" + jar.getArchiveName())));
+        });
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.minimize;
+
+import com.google.common.io.ByteStreams;
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+@CacheableTask
+public class MinimizePluginJarTask extends DefaultTask {
+
+    private final RegularFileProperty _inputJar;
+    private final RegularFileProperty _outputJar;
+    private final ListProperty<String> _keep;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public MinimizePluginJarTask() {
+        _inputJar = getProject().getLayout().fileProperty();
+        _outputJar = getProject().getLayout().fileProperty();
+        _keep = getProject().getObjects().listProperty(String.class);
+    }
+
+    /**
+     * Gets the property holding the plugin jar to minimize.
+     *
+     * @return The property
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getInputJar() {
+        return _inputJar;
+    }
+
+    /**
+     * Gets the property holding the minimized plugin jar.
+     *
+     * @return The property
+     */
+    @OutputFile
+    public RegularFileProperty getOutputJar() {
+        return _outputJar;
+    }
+
+    /**
+     * Gets the property holding the patterns of classes which are always
+     * kept, for example classes only loaded by reflection. A pattern is a
+     * fully qualified class name in which {@code *} matches within a
+     * package and {@code **} matches across packages.
+     *
+     * @return The property
+     */
+    @Input
+    public ListProperty<String> getKeep() {
+        return _keep;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void minimize() {
+        File input = _inputJar.get().getAsFile();
+        File output = _outputJar.get().getAsFile();
+        try (ZipFile zip = new ZipFile(input)) {
+            PluginClasses classes = PluginClasses.read(zip, getTemporaryDir());
+            Set<String> reachable = classes.reachable(_keep.getOrElse(Collections.emptyList()));
+            if (reachable.isEmpty() && classes.size() > 0) {
+                throw new GradleException("No main class, listener or command executor found in " + input);
+            }
+            Set<String> kept = new HashSet<>();
+            Set<String> keptPackages = new HashSet<>();
+            Set<String> classPackages = new HashSet<>();
+            int resources = 0;
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String name = entry.getName();
+                if (PluginClasses.isClass(name)) {
+                    classPackages.add(getParent(name));
+                    if (reachable.contains(name.substring(0, name.length() - PluginClasses.CLASS_SUFFIX.length()))) {
+                        kept.add(name);
+                        keptPackages.add(getParent(name));
+                    }
+                }
+            }
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String name = entry.getName();
+                if (entry.isDirectory() || PluginClasses.isClass(name)) {
+                    continue;
+                }
+                resources++;
+                if (name.equals(PluginYml.FILENAME_SPIGOT) || name.equals(PluginYml.FILENAME_BUNGEE)) {
+                    kept.add(name);
+                } else if (name.startsWith(PluginClasses.SERVICES)) {
+                    String service = PluginClasses.toInternalName(name.substring(PluginClasses.SERVICES.length()));
+                    if (!classes.contains(service) || reachable.contains(service)) {
+                        kept.add(name);
+                    }
+                } else if (!classPackages.contains(getParent(name)) || keptPackages.contains(getParent(name))) {
+                    // Resources next to stripped classes belong to the stripped code
+                    kept.add(name);
+                }
+            }
+
+            int keptClasses = (int) kept.stream().filter(PluginClasses::isClass).count();
+            write(zip, output, kept);
+            getLogger().lifecycle("Minimized {}: removed {} of {} classes and {} of {} resources, {} -> {} bytes",
+                    input.getName(), classes.size() - keptClasses, classes.size(),
+                    resources - (kept.size() - keptClasses), resources, input.length(), output.length());
+        } catch (IOException e) {
+            throw new GradleException("Could not minimize the plugin jar " + input, e);
+        }
+    }
+
+    private static void write(ZipFile zip, File output, Set<String> kept) throws IOException {
+        Files.createDirectories(output.getParentFile().toPath());
+        Set<String> directories = new HashSet<>();
+        for (String name : kept) {
+            for (String parent = getParent(name); !parent.isEmpty(); parent = getParent(parent.substring(0, parent.length() - 1))) {
+                directories.add(parent);
+            }
+        }
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(output.toPath()))) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                if (entry.isDirectory() ? !directories.contains(entry.getName()) : !kept.contains(entry.getName())) {
+                    continue;
+                }
+                ZipEntry copy = new ZipEntry(entry.getName());
+                copy.setTime(entry.getTime());
+                if (entry.getMethod() == ZipEntry.STORED) {
+                    copy.setMethod(ZipEntry.STORED);
+                    copy.setSize(entry.getSize());
+                    copy.setCompressedSize(entry.getSize());
+                    copy.setCrc(entry.getCrc());
+                }
+                out.putNextEntry(copy);
+                if (!entry.isDirectory()) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        ByteStreams.copy(in, out);
+                    }
+                }
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static String getParent(String name) {
+        return name.substring(0, name.lastIndexOf('/') + 1);
+    }
+}
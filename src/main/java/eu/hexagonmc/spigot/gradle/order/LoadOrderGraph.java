@@ -0,0 +1,225 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.order;
+
+import eu.hexagonmc.spigot.gradle.meta.MetadataSnapshot;
+import eu.hexagonmc.spigot.gradle.meta.MetadataSnapshot.Dependency;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+final class LoadOrderGraph {
+
+    // Plugin -> plugins which have to load after it -> true if the edge is a hard dependency
+    private final Map<String, Map<String, Boolean>> _edges = new TreeMap<>();
+    private final List<String> _warnings = new ArrayList<>();
+    private final List<String> _order;
+
+    /**
+     * Creates the load order graph of the given plugins and sorts it. Like
+     * the server, cycles of soft dependencies are broken by ignoring one of
+     * their soft dependencies.
+     *
+     * @param plugins The plugins
+     * @param external The names of plugins which are not built in this
+     *        workspace but are available on the server
+     * @throws GradleException If a hard dependency is missing or hard
+     *         dependencies form a cycle
+     */
+    LoadOrderGraph(Collection<MetadataSnapshot> plugins, Collection<String> external) {
+        plugins.forEach(plugin -> _edges.put(plugin.getName(), new TreeMap<>()));
+        for (MetadataSnapshot plugin : plugins) {
+            for (Dependency dependency : plugin.getDependencies()) {
+                String name = dependency.getName();
+                switch (dependency.getType()) {
+                    case DEPEND:
+                        if (_edges.containsKey(name)) {
+                            _edges.get(name).put(plugin.getName(), true);
+                        } else if (!external.contains(name)) {
+                            throw new GradleException("Plugin " + plugin.getName() + " depends on the unknown plugin " + name);
+                        }
+                        break;
+                    case SOFTDEPEND:
+                        if (_edges.containsKey(name)) {
+                            _edges.get(name).putIfAbsent(plugin.getName(), false);
+                        }
+                        break;
+                    case LOADBEFORE:
+                        if (_edges.containsKey(name)) {
+                            _edges.get(plugin.getName()).putIfAbsent(name, false);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        _order = sort();
+    }
+
+    /**
+     * Gets the load order of the plugins. Plugins without an order between
+     * them are sorted by name.
+     *
+     * @return The names of the plugins in load order
+     */
+    List<String> getOrder() {
+        return _order;
+    }
+
+    /**
+     * Gets the warnings about ignored soft dependencies.
+     *
+     * @return The warnings
+     */
+    List<String> getWarnings() {
+        return _warnings;
+    }
+
+    /**
+     * Gets the critical path of the startup, which is the chain of dependent
+     * plugins with the highest total enable time. Plugins without a known
+     * enable time count as zero, so without any enable time the longest
+     * chain is returned.
+     *
+     * @param enableTimes The enable times in milliseconds by plugin
+     * @return The names of the plugins on the critical path in load order
+     */
+    List<String> getCriticalPath(Map<String, Long> enableTimes) {
+        Map<String, Long> cost = new HashMap<>();
+        Map<String, Integer> length = new HashMap<>();
+        Map<String, String> previous = new HashMap<>();
+        String last = null;
+        for (String plugin : _order) {
+            cost.putIfAbsent(plugin, 0L);
+            length.putIfAbsent(plugin, 0);
+            long total = cost.get(plugin) + enableTimes.getOrDefault(plugin, 0L);
+            int hops = length.get(plugin) + 1;
+            cost.put(plugin, total);
+            length.put(plugin, hops);
+            for (String next : _edges.get(plugin).keySet()) {
+                long nextCost = cost.getOrDefault(next, -1L);
+                if (total > nextCost || total == nextCost && hops > length.get(next)) {
+                    cost.put(next, total);
+                    length.put(next, hops);
+                    previous.put(next, plugin);
+                }
+            }
+            if (last == null || total > cost.get(last) || total == cost.get(last) && hops > length.get(last)) {
+                last = plugin;
+            }
+        }
+        List<String> path = new ArrayList<>();
+        for (String plugin = last; plugin != null; plugin = previous.get(plugin)) {
+            path.add(plugin);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private List<String> sort() {
+        while (true) {
+            Map<String, Integer> incoming = new HashMap<>();
+            _edges.keySet().forEach(plugin -> incoming.put(plugin, 0));
+            _edges.values().forEach(next -> next.keySet().forEach(plugin -> incoming.merge(plugin, 1, Integer::sum)));
+            TreeSet<String> ready = new TreeSet<>();
+            incoming.forEach((plugin, count) -> {
+                if (count == 0) {
+                    ready.add(plugin);
+                }
+            });
+            List<String> order = new ArrayList<>();
+            while (!ready.isEmpty()) {
+                String plugin = ready.pollFirst();
+                order.add(plugin);
+                for (String next : _edges.get(plugin).keySet()) {
+                    if (incoming.merge(next, -1, Integer::sum) == 0) {
+                        ready.add(next);
+                    }
+                }
+            }
+            if (order.size() == _edges.size()) {
+                return order;
+            }
+            breakCycle(findCycle(incoming));
+        }
+    }
+
+    /**
+     * Finds a cycle among the plugins which could not be sorted.
+     *
+     * @param incoming The number of unsorted dependencies by plugin
+     * @return The plugins of the cycle, the first plugin repeated at the end
+     */
+    private List<String> findCycle(Map<String, Integer> incoming) {
+        String start = null;
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(incoming).entrySet()) {
+            if (entry.getValue() > 0) {
+                start = entry.getKey();
+                break;
+            }
+        }
+        // Every unsorted plugin has an unsorted predecessor, so walking the edges backwards ends in a cycle
+        Map<String, Integer> visited = new LinkedHashMap<>();
+        String current = start;
+        while (!visited.containsKey(current)) {
+            visited.put(current, visited.size());
+            current = predecessor(current, incoming);
+        }
+        List<String> cycle = new ArrayList<>(visited.keySet()).subList(visited.get(current), visited.size());
+        List<String> result = new ArrayList<>(cycle);
+        Collections.reverse(result);
+        result.add(result.get(0));
+        return result;
+    }
+
+    private String predecessor(String plugin, Map<String, Integer> incoming) {
+        for (Map.Entry<String, Map<String, Boolean>> entry : _edges.entrySet()) {
+            if (incoming.get(entry.getKey()) > 0 && entry.getValue().containsKey(plugin)) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Plugin " + plugin + " has no unsorted predecessor");
+    }
+
+    private void breakCycle(List<String> cycle) {
+        String description = String.join(" -> ", cycle);
+        for (int i = 0; i + 1 < cycle.size(); i++) {
+            Map<String, Boolean> next = _edges.get(cycle.get(i));
+            if (!next.get(cycle.get(i + 1))) {
+                next.remove(cycle.get(i + 1));
+                _warnings.add("Ignoring the soft order " + cycle.get(i) + " -> " + cycle.get(i + 1) + " to break the cycle " + description);
+                return;
+            }
+        }
+        throw new GradleException("Plugin dependency cycle detected: " + description);
+    }
+}
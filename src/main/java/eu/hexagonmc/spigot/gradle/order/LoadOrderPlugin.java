@@ -0,0 +1,82 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.order;
+
+import eu.hexagonmc.spigot.gradle.meta.GenerateMetadataTask;
+import eu.hexagonmc.spigot.gradle.meta.MetadataPlugin;
+import eu.hexagonmc.spigot.gradle.meta.MetadataSnapshot;
+import eu.hexagonmc.spigot.gradle.server.RunServerPlugin;
+import eu.hexagonmc.spigot.gradle.server.RunServerTask;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+public class LoadOrderPlugin implements Plugin<Project> {
+
+    public static final String TASK_NAME = "pluginLoadOrder";
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        TaskProvider<LoadOrderTask> loadOrder = project.getTasks().register(TASK_NAME, LoadOrderTask.class, task -> {
+            task.setGroup("help");
+            task.setDescription("Computes the load order and the startup critical path of all plugins in the workspace.");
+        });
+
+        project.allprojects(plugin -> {
+            // The memoized snapshot, so the closures of the spigot block are called once per build
+            plugin.getPlugins().withType(MetadataPlugin.class, metadata -> loadOrder.configure(task -> {
+                TaskProvider<GenerateMetadataTask> generateMetadata = plugin.getTasks().withType(GenerateMetadataTask.class)
+                        .named(MetadataPlugin.TASK_NAME);
+                task.getSnapshots().addAll(metadata.getSpigotSnapshot().map(snapshot -> isSpigotPlugin(snapshot, generateMetadata.get())
+                        ? Collections.<MetadataSnapshot>singletonList(snapshot) : Collections.<MetadataSnapshot>emptyList()));
+            }));
+            plugin.getPlugins().withType(RunServerPlugin.class, runServer -> loadOrder.configure(task -> {
+                TaskProvider<RunServerTask> server = plugin.getTasks().withType(RunServerTask.class).named(RunServerPlugin.TASK_NAME);
+                // The reports are used if present, running the servers is up to the build
+                task.getEnableReports().from((Callable<File>) () -> server.get().getReport().get().getAsFile());
+                task.mustRunAfter(server);
+            }));
+        });
+    }
+
+    /**
+     * Checks if the project produces a spigot plugin. Every project with the
+     * metadata plugin has a spigot snapshot, but only a main class or an own
+     * plugin.yml makes it a plugin the server loads, bungee only projects
+     * have neither.
+     *
+     * @param snapshot The spigot snapshot of the project
+     * @param generateMetadata The metadata task of the project
+     * @return True if the project produces a spigot plugin false otherwise
+     */
+    private static boolean isSpigotPlugin(MetadataSnapshot snapshot, GenerateMetadataTask generateMetadata) {
+        return snapshot.getMain() != null || !generateMetadata.getMetadataFilesSpigot().isEmpty();
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.order;
+
+import eu.hexagonmc.spigot.gradle.meta.MetadataSnapshot;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@CacheableTask
+public class LoadOrderTask extends DefaultTask {
+
+    static final String LOAD_ORDER_FILE = "load-order.txt";
+    static final String CRITICAL_PATH_FILE = "critical-path.txt";
+
+    private final ListProperty<MetadataSnapshot> _snapshots;
+    private final ListProperty<String> _externalPlugins;
+    private final ConfigurableFileCollection _enableReports;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public LoadOrderTask() {
+        _snapshots = getProject().getObjects().listProperty(MetadataSnapshot.class);
+        _externalPlugins = getProject().getObjects().listProperty(String.class);
+        _enableReports = getProject().getLayout().configurableFiles();
+    }
+
+    /**
+     * Gets the property holding the spigot {@link MetadataSnapshot} of every
+     * plugin in the workspace.
+     *
+     * @return The property
+     */
+    @Input
+    public ListProperty<MetadataSnapshot> getSnapshots() {
+        return _snapshots;
+    }
+
+    /**
+     * Gets the property holding the names of plugins which are not built in
+     * this workspace but are installed on the server. Hard dependencies on
+     * them are not reported as missing.
+     *
+     * @return The property
+     */
+    @Input
+    public ListProperty<String> getExternalPlugins() {
+        return _externalPlugins;
+    }
+
+    /**
+     * Gets the reports of the runServer tasks. If a report exists the
+     * measured enable time of the plugin is used for the critical path.
+     *
+     * @return The reports
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public ConfigurableFileCollection getEnableReports() {
+        return _enableReports;
+    }
+
+    /**
+     * Gets the output directory of the load order and the critical path
+     * report.
+     *
+     * @return The output directory
+     */
+    @OutputDirectory
+    public File getOutputDir() {
+        return new File(getProject().getBuildDir(), "pluginLoadOrder");
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void generate() {
+        LoadOrderGraph graph = new LoadOrderGraph(_snapshots.get(), _externalPlugins.getOrElse(Collections.emptyList()));
+        graph.getWarnings().forEach(getLogger()::warn);
+        Map<String, Long> enableTimes = readEnableTimes();
+        List<String> path = graph.getCriticalPath(enableTimes);
+
+        List<String> report = new ArrayList<>();
+        long total = path.stream().mapToLong(plugin -> enableTimes.getOrDefault(plugin, 0L)).sum();
+        report.add("Critical path: " + path.size() + " plugins, " + total + " ms measured");
+        for (String plugin : path) {
+            Long enableTime = enableTimes.get(plugin);
+            report.add("  " + plugin + (enableTime == null ? " (enable time unknown)" : " (" + enableTime + " ms)"));
+        }
+        try {
+            Files.write(new File(getOutputDir(), LOAD_ORDER_FILE).toPath(), graph.getOrder(), StandardCharsets.UTF_8);
+            Files.write(new File(getOutputDir(), CRITICAL_PATH_FILE).toPath(), report, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Could not write the plugin load order", e);
+        }
+        report.forEach(getLogger()::lifecycle);
+    }
+
+    /**
+     * Reads the onEnable times of the runServer reports.
+     *
+     * @return The enable times in milliseconds by plugin
+     */
+    private Map<String, Long> readEnableTimes() {
+        Map<String, Long> enableTimes = new HashMap<>();
+        for (File report : _enableReports.getFiles()) {
+            if (!report.isFile()) {
+                continue;
+            }
+            try {
+                for (String line : Files.readAllLines(report.toPath(), StandardCharsets.UTF_8)) {
+                    String[] phase = line.split("\t");
+                    if (phase.length > 2 && "onEnable".equals(phase[1])) {
+                        enableTimes.put(phase[0], TimeUnit.NANOSECONDS.toMillis(Long.parseLong(phase[2])));
+                    }
+                }
+            } catch (IOException e) {
+                throw new GradleException("Could not read the server report " + report, e);
+            }
+        }
+        return enableTimes;
+    }
+}
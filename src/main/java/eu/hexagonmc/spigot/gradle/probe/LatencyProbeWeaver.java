@@ -0,0 +1,290 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.probe;
+
+import eu.hexagonmc.spigot.gradle.runtime.LatencyHistogram;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
+
+import java.util.List;
+
+final class LatencyProbeWeaver implements Opcodes {
+
+    static final String PROBES_SUFFIX = "$LatencyProbes";
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String STRING = "java/lang/String";
+    private static final String EVENT_HANDLER = "Lorg/bukkit/event/EventHandler;";
+    private static final String COMMAND_SENDER = "org/bukkit/command/CommandSender";
+    private static final String COMMAND_EXECUTOR = "org/bukkit/command/CommandExecutor";
+    private static final String PLUGIN_COMMAND = "org/bukkit/command/PluginCommand";
+    private static final String JAVA_PLUGIN = "org/bukkit/plugin/java/JavaPlugin";
+    private static final String ON_COMMAND = "onCommand";
+    private static final String ON_COMMAND_DESCRIPTOR = "(L" + COMMAND_SENDER + ";Lorg/bukkit/command/Command;L" + STRING + ";[L" + STRING + ";)Z";
+    private static final String ON_ENABLE = "onEnable";
+    private static final String HISTOGRAMS = "HISTOGRAMS";
+    private static final String RECORD = "record";
+    private static final String REGISTER = "register";
+
+    private LatencyProbeWeaver() {
+    }
+
+    /**
+     * Wraps the event handlers and command executors of the given class with
+     * latency probes. The main class of the plugin additionally registers
+     * the latency command at the end of onEnable.
+     *
+     * @param bytes The class file
+     * @param probes The internal name of the probes class
+     * @param names The names of the probes, the probes of this class are
+     *        appended
+     * @param main True if the class is the main class of the plugin
+     * @return The instrumented class file or null if the class has nothing
+     *         to instrument
+     */
+    static byte[] instrument(byte[] bytes, String probes, List<String> names, boolean main) {
+        ClassReader reader = new ClassReader(bytes);
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        ProbeClassVisitor visitor = new ProbeClassVisitor(writer, probes, names, main);
+        reader.accept(visitor, ClassReader.EXPAND_FRAMES);
+        return visitor._changed ? writer.toByteArray() : null;
+    }
+
+    /**
+     * Generates the probes class holding one histogram per probe. It is the
+     * executor of the latency command as well.
+     *
+     * @param name The internal name of the probes class
+     * @param command The name of the latency command
+     * @param names The names of the probes
+     * @param histogram The internal name of the relocated {@link LatencyHistogram}
+     * @return The class file of the probes class
+     */
+    static byte[] probes(String name, String command, List<String> names, String histogram) {
+        String histograms = "[L" + histogram + ";";
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, name, null, OBJECT, new String[] {COMMAND_EXECUTOR});
+        FieldVisitor field = writer.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, HISTOGRAMS, histograms, null, null);
+        field.visitEnd();
+
+        MethodVisitor method = writer.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        method.visitCode();
+        method.visitLdcInsn(names.size());
+        method.visitMethodInsn(INVOKESTATIC, histogram, "create", "(I)" + histograms, false);
+        method.visitFieldInsn(PUTSTATIC, name, HISTOGRAMS, histograms);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        method.visitCode();
+        method.visitVarInsn(ALOAD, 0);
+        method.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(ACC_PUBLIC | ACC_STATIC, RECORD, "(IJ)V", null, null);
+        method.visitCode();
+        method.visitFieldInsn(GETSTATIC, name, HISTOGRAMS, histograms);
+        method.visitVarInsn(ILOAD, 0);
+        method.visitInsn(AALOAD);
+        method.visitVarInsn(LLOAD, 1);
+        method.visitMethodInsn(INVOKEVIRTUAL, histogram, RECORD, "(J)V", false);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        // The command is missing if the plugin.yml was not generated, the probes still record
+        method = writer.visitMethod(ACC_PUBLIC | ACC_STATIC, REGISTER, "(L" + OBJECT + ";)V", null, null);
+        method.visitCode();
+        Label skip = new Label();
+        method.visitVarInsn(ALOAD, 0);
+        method.visitTypeInsn(CHECKCAST, JAVA_PLUGIN);
+        method.visitLdcInsn(command);
+        method.visitMethodInsn(INVOKEVIRTUAL, JAVA_PLUGIN, "getCommand", "(L" + STRING + ";)L" + PLUGIN_COMMAND + ";", false);
+        method.visitVarInsn(ASTORE, 1);
+        method.visitVarInsn(ALOAD, 1);
+        method.visitJumpInsn(IFNULL, skip);
+        method.visitVarInsn(ALOAD, 1);
+        method.visitTypeInsn(NEW, name);
+        method.visitInsn(DUP);
+        method.visitMethodInsn(INVOKESPECIAL, name, "<init>", "()V", false);
+        method.visitMethodInsn(INVOKEVIRTUAL, PLUGIN_COMMAND, "setExecutor", "(L" + COMMAND_EXECUTOR + ";)V", false);
+        method.visitLabel(skip);
+        method.visitFrame(F_FULL, 2, new Object[] {OBJECT, PLUGIN_COMMAND}, 0, new Object[0]);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(ACC_PUBLIC, ON_COMMAND, ON_COMMAND_DESCRIPTOR, null, null);
+        method.visitCode();
+        method.visitVarInsn(ALOAD, 1);
+        method.visitLdcInsn(String.join("\n", names));
+        method.visitFieldInsn(GETSTATIC, name, HISTOGRAMS, histograms);
+        method.visitMethodInsn(INVOKESTATIC, histogram, "report", "(L" + STRING + ";" + histograms + ")[L" + STRING + ";", false);
+        method.visitMethodInsn(INVOKEINTERFACE, COMMAND_SENDER, "sendMessage", "([L" + STRING + ";)V", true);
+        method.visitInsn(ICONST_1);
+        method.visitInsn(IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static final class ProbeClassVisitor extends ClassVisitor {
+
+        private final String _probes;
+        private final List<String> _names;
+        private final boolean _main;
+        private String _name;
+        private String _superName;
+        private boolean _onEnable;
+        private boolean _changed;
+
+        private ProbeClassVisitor(ClassVisitor visitor, String probes, List<String> names, boolean main) {
+            super(ASM6, visitor);
+            _probes = probes;
+            _names = names;
+            _main = main;
+        }
+
+        /**
+         * {@inheritDoc}.
+         */
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            _name = name;
+            _superName = superName;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        /**
+         * {@inheritDoc}.
+         */
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            MethodVisitor visitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if ((access & (ACC_ABSTRACT | ACC_NATIVE | ACC_BRIDGE | ACC_SYNTHETIC)) != 0 || name.startsWith("<")) {
+                return visitor;
+            }
+            boolean onEnable = _main && name.equals(ON_ENABLE) && descriptor.equals("()V") && (access & ACC_STATIC) == 0;
+            _onEnable |= onEnable;
+            boolean command = name.equals(ON_COMMAND) && descriptor.equals(ON_COMMAND_DESCRIPTOR) && (access & ACC_STATIC) == 0;
+            return new ProbeMethodVisitor(this, visitor, access, name, descriptor, command, onEnable);
+        }
+
+        /**
+         * {@inheritDoc}.
+         */
+        @Override
+        public void visitEnd() {
+            if (_main && !_onEnable) {
+                MethodVisitor method = super.visitMethod(ACC_PUBLIC, ON_ENABLE, "()V", null, null);
+                method.visitCode();
+                method.visitVarInsn(ALOAD, 0);
+                method.visitMethodInsn(INVOKESPECIAL, _superName, ON_ENABLE, "()V", false);
+                method.visitVarInsn(ALOAD, 0);
+                method.visitMethodInsn(INVOKESTATIC, _probes, REGISTER, "(L" + OBJECT + ";)V", false);
+                method.visitInsn(RETURN);
+                method.visitMaxs(0, 0);
+                method.visitEnd();
+                _changed = true;
+            }
+            super.visitEnd();
+        }
+    }
+
+    private static final class ProbeMethodVisitor extends AdviceAdapter {
+
+        private final ProbeClassVisitor _owner;
+        private final String _name;
+        private final boolean _onEnable;
+        private boolean _probed;
+        private int _probe = -1;
+        private int _start;
+
+        private ProbeMethodVisitor(ProbeClassVisitor owner, MethodVisitor visitor, int access, String name, String descriptor, boolean command,
+                boolean onEnable) {
+            super(ASM6, visitor, access, name, descriptor);
+            _owner = owner;
+            _name = name;
+            _probed = command;
+            _onEnable = onEnable;
+        }
+
+        /**
+         * {@inheritDoc}.
+         */
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            _probed |= descriptor.equals(EVENT_HANDLER);
+            return super.visitAnnotation(descriptor, visible);
+        }
+
+        /**
+         * {@inheritDoc}.
+         */
+        @Override
+        protected void onMethodEnter() {
+            if (_probed) {
+                _probe = _owner._names.size();
+                _owner._names.add(_owner._name.replace('/', '.') + "#" + _name);
+                _start = newLocal(Type.LONG_TYPE);
+                visitMethodInsn(INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+                storeLocal(_start);
+                _owner._changed = true;
+            }
+            if (_onEnable) {
+                _owner._changed = true;
+            }
+        }
+
+        /**
+         * {@inheritDoc}.
+         */
+        @Override
+        protected void onMethodExit(int opcode) {
+            if (_probe >= 0) {
+                visitLdcInsn(_probe);
+                visitMethodInsn(INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+                loadLocal(_start);
+                visitInsn(LSUB);
+                visitMethodInsn(INVOKESTATIC, _owner._probes, RECORD, "(IJ)V", false);
+            }
+            if (_onEnable && opcode == RETURN) {
+                loadThis();
+                visitMethodInsn(INVOKESTATIC, _owner._probes, REGISTER, "(L" + OBJECT + ";)V", false);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.probe;
+
+public class LatencyProbes {
+
+    public static final String EXTENSION_NAME = "latencyProbes";
+
+    private boolean _enabled = false;
+    private String _command = "latency";
+    private String _permission;
+
+    /**
+     * Gets if the event handlers and command executors are instrumented
+     * with latency probes. Without probes the classes are left untouched.
+     *
+     * @return True if the probes are woven in false otherwise
+     */
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * Sets if the event handlers and command executors are instrumented
+     * with latency probes. Without probes the classes are left untouched.
+     *
+     * @param enabled True if the probes are woven in false otherwise
+     */
+    public void setEnabled(boolean enabled) {
+        _enabled = enabled;
+    }
+
+    /**
+     * Gets the name of the generated command printing the latencies.
+     *
+     * @return The name of the command
+     */
+    public String getCommand() {
+        return _command;
+    }
+
+    /**
+     * Sets the name of the generated command printing the latencies.
+     *
+     * @param command The name of the command
+     */
+    public void setCommand(String command) {
+        _command = command;
+    }
+
+    /**
+     * Gets the permission of the generated command. Defaults to the name of
+     * the plugin followed by the name of the command, which is granted to
+     * operators.
+     *
+     * @return The permission or null for the default
+     */
+    public String getPermission() {
+        return _permission;
+    }
+
+    /**
+     * Sets the permission of the generated command.
+     *
+     * @param permission The permission or null for the default
+     */
+    public void setPermission(String permission) {
+        _permission = permission;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.probe;
+
+import eu.hexagonmc.spigot.gradle.ExtractRuntimeTask;
+import eu.hexagonmc.spigot.gradle.RuntimePlugin;
+import eu.hexagonmc.spigot.gradle.meta.MetadataPlugin;
+import eu.hexagonmc.spigot.gradle.meta.MetadataSpigotExtension;
+import eu.hexagonmc.spigot.gradle.runtime.LatencyHistogram;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.compile.JavaCompile;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+public class LatencyProbesPlugin implements Plugin<Project> {
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        project.getPlugins().apply(MetadataPlugin.class);
+        LatencyProbes probes = project.getExtensions().create(LatencyProbes.EXTENSION_NAME, LatencyProbes.class);
+        MetadataSpigotExtension spigot = project.getExtensions().getByType(MetadataSpigotExtension.class);
+
+        // Nothing is registered unless enabled, so the classes of a build without probes are unchanged
+        project.afterEvaluate(evaluated -> {
+            if (!probes.isEnabled()) {
+                return;
+            }
+            String name = spigot.name() != null ? spigot.name() : project.getName();
+            String permission = probes.getPermission() != null ? probes.getPermission() : name.toLowerCase(Locale.ROOT) + "." + probes.getCommand();
+            spigot.command(probes.getCommand());
+            spigot.commands().stream().filter(command -> command.getName().equals(probes.getCommand())).forEach(command -> {
+                command.description("Prints the latencies of the event handlers and command executors");
+                command.permission(permission);
+            });
+
+            TaskContainer tasks = project.getTasks();
+            tasks.withType(ExtractRuntimeTask.class).named(RuntimePlugin.TASK_NAME).configure(task -> {
+                task.getHelpers().addAll(LatencyHistogram.class.getName());
+            });
+            project.getPlugins().withType(JavaPlugin.class, plugin -> {
+                tasks.withType(JavaCompile.class).named(JavaPlugin.COMPILE_JAVA_TASK_NAME).configure(compileJava -> {
+                    // Unchanged classes of an incremental compilation would be instrumented twice
+                    compileJava.getOptions().setIncremental(false);
+                    Provider<String> runtimePackage = RuntimePlugin.getPackage(project);
+                    compileJava.getInputs().property(LatencyProbes.EXTENSION_NAME + ".command", probes.getCommand());
+                    compileJava.getInputs().property(LatencyProbes.EXTENSION_NAME + ".runtimePackage", (Callable<String>) runtimePackage::get);
+                    compileJava.doLast(new WeaveLatencyProbesAction(probes.getCommand(), spigot::main, runtimePackage));
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.probe;
+
+import eu.hexagonmc.spigot.annotation.meta.PluginMetadata;
+import eu.hexagonmc.spigot.annotation.meta.PluginYml;
+import eu.hexagonmc.spigot.gradle.ExtractRuntimeTask;
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import eu.hexagonmc.spigot.gradle.runtime.LatencyHistogram;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.compile.JavaCompile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class WeaveLatencyProbesAction implements Action<Task> {
+
+    private final String _command;
+    private final Callable<String> _main;
+    private final Provider<String> _runtimePackage;
+
+    /**
+     * Creates a new action weaving latency probes into the compiled classes.
+     *
+     * @param command The name of the latency command
+     * @param main The main class of the plugin, used if the compiled classes
+     *        have no plugin.yml
+     * @param runtimePackage The package the runtime helpers are relocated to
+     */
+    public WeaveLatencyProbesAction(String command, Callable<String> main, Provider<String> runtimePackage) {
+        _command = command;
+        _main = main;
+        _runtimePackage = runtimePackage;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void execute(Task task) {
+        Path classesDir = ((JavaCompile) task).getDestinationDir().toPath();
+        try {
+            String main = PluginClasses.toInternalName(readMain(classesDir));
+            String probes = main + LatencyProbeWeaver.PROBES_SUFFIX;
+            List<Path> classFiles;
+            try (Stream<Path> files = Files.walk(classesDir)) {
+                classFiles = files.filter(file -> PluginClasses.isClass(classesDir.relativize(file).toString().replace('\\', '/')))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            List<String> names = new ArrayList<>();
+            for (Path classFile : classFiles) {
+                String name = classesDir.relativize(classFile).toString().replace('\\', '/');
+                name = name.substring(0, name.length() - PluginClasses.CLASS_SUFFIX.length());
+                byte[] instrumented = LatencyProbeWeaver.instrument(Files.readAllBytes(classFile), probes, names, name.equals(main));
+                if (instrumented != null) {
+                    Files.write(classFile, instrumented);
+                }
+            }
+            Files.write(classesDir.resolve(probes + PluginClasses.CLASS_SUFFIX), LatencyProbeWeaver.probes(probes, _command, names,
+                    ExtractRuntimeTask.getInternalName(LatencyHistogram.class, _runtimePackage.get())));
+            task.getLogger().info("Woven {} latency probes", names.size());
+        } catch (IOException e) {
+            throw new GradleException("Could not weave the latency probes", e);
+        }
+    }
+
+    private String readMain(Path classesDir) throws IOException {
+        Path pluginYml = classesDir.resolve(PluginYml.FILENAME_SPIGOT);
+        String main = null;
+        if (Files.isRegularFile(pluginYml)) {
+            PluginMetadata metadata = PluginYml.read(pluginYml);
+            main = metadata == null ? null : metadata.getMain();
+        }
+        if (main == null) {
+            try {
+                main = _main.call();
+            } catch (Exception e) {
+                throw new GradleException("Could not resolve the main class", e);
+            }
+        }
+        if (main == null) {
+            throw new GradleException("Latency probes need the main class of the spigot plugin");
+        }
+        return main;
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.relocate;
+
+import com.google.common.io.ByteStreams;
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import eu.hexagonmc.spigot.gradle.SpigotGradle;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+@CacheableTask
+public class MergeServicesTask extends DefaultTask {
+
+    private final ConfigurableFileCollection _files;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public MergeServicesTask() {
+        _files = getProject().getLayout().configurableFiles();
+    }
+
+    /**
+     * Gets the class directories and jars whose service files are merged.
+     *
+     * @return The class directories and jars
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public ConfigurableFileCollection getFiles() {
+        return _files;
+    }
+
+    /**
+     * Gets the output directory of the merged service files.
+     *
+     * @return The output directory
+     */
+    @OutputDirectory
+    public File getOutputDir() {
+        return new File(getTemporaryDir(), "services");
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void merge() {
+        Map<String, Set<String>> services = new LinkedHashMap<>();
+        Path outputDir = getOutputDir().toPath();
+        try {
+            SpigotGradle.cleanDirectory(outputDir);
+            for (File file : _files) {
+                if (file.isDirectory()) {
+                    getProject().fileTree(file).visit(details -> read(services, details));
+                } else if (file.isFile()) {
+                    read(services, file);
+                }
+            }
+            for (Map.Entry<String, Set<String>> service : services.entrySet()) {
+                Path target = outputDir.resolve(service.getKey());
+                Files.createDirectories(target.getParent());
+                Files.write(target, service.getValue(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Could not merge the service files", e);
+        }
+        getLogger().info("Merged {} service files", services.size());
+    }
+
+    private static void read(Map<String, Set<String>> services, FileVisitDetails details) {
+        String name = details.getRelativePath().getPathString();
+        if (!details.isDirectory() && name.startsWith(PluginClasses.SERVICES)) {
+            try {
+                add(services, name, Files.readAllBytes(details.getFile().toPath()));
+            } catch (IOException e) {
+                throw new GradleException("Could not read the service file " + name, e);
+            }
+        }
+    }
+
+    private static void read(Map<String, Set<String>> services, File jar) throws IOException {
+        try (ZipFile zip = new ZipFile(jar)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                if (!entry.isDirectory() && entry.getName().startsWith(PluginClasses.SERVICES)) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        add(services, entry.getName(), ByteStreams.toByteArray(in));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void add(Map<String, Set<String>> services, String name, byte[] bytes) {
+        Set<String> providers = services.computeIfAbsent(name, key -> new LinkedHashSet<>());
+        // Comments are dropped, a provider listed by several files is kept once
+        for (String line : new String(bytes, StandardCharsets.UTF_8).split("\\R")) {
+            String provider = line.replaceFirst("#.*", "").trim();
+            if (!provider.isEmpty()) {
+                providers.add(provider);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.relocate;
+
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import eu.hexagonmc.spigot.gradle.SpigotGradle;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+@CacheableTask
+public class RelocatePluginClassesTask extends DefaultTask {
+
+    private final ConfigurableFileCollection _classes;
+    private final ListProperty<String> _rules;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public RelocatePluginClassesTask() {
+        _classes = getProject().getLayout().configurableFiles();
+        _rules = getProject().getObjects().listProperty(String.class);
+    }
+
+    /**
+     * Gets the compiled classes and resources of the plugin.
+     *
+     * @return The classes and resources
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public ConfigurableFileCollection getClasses() {
+        return _classes;
+    }
+
+    /**
+     * Gets the relocation rules, each a package and its new package
+     * separated by {@code =}.
+     *
+     * @return The rules
+     */
+    @Input
+    public ListProperty<String> getRules() {
+        return _rules;
+    }
+
+    /**
+     * Gets the output directory of the relocated classes and resources.
+     *
+     * @return The output directory
+     */
+    @OutputDirectory
+    public File getOutputDir() {
+        return new File(getTemporaryDir(), "classes");
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void relocate() {
+        Relocator relocator = new Relocator(_rules.getOrElse(new ArrayList<>()));
+        Path outputDir = getOutputDir().toPath();
+        List<String> relocated = new ArrayList<>();
+        try {
+            SpigotGradle.cleanDirectory(outputDir);
+            _classes.getAsFileTree().visit(details -> {
+                if (!details.isDirectory()) {
+                    relocated.add(write(relocator, outputDir, details));
+                }
+            });
+        } catch (IOException e) {
+            throw new GradleException("Could not relocate the plugin classes", e);
+        }
+        getLogger().info("Relocated {} plugin files", relocated.size());
+    }
+
+    private static String write(Relocator relocator, Path outputDir, FileVisitDetails details) {
+        String name = details.getRelativePath().getPathString();
+        Path target = outputDir.resolve(relocator.relocatePath(name));
+        try {
+            Files.createDirectories(target.getParent());
+            byte[] bytes = Files.readAllBytes(details.getFile().toPath());
+            if (PluginClasses.isClass(name)) {
+                bytes = relocator.relocateClass(bytes);
+            } else if (name.startsWith(PluginClasses.SERVICES)) {
+                bytes = relocator.relocateServices(bytes);
+            }
+            Files.write(target, bytes);
+        } catch (IOException e) {
+            throw new GradleException("Could not relocate " + name, e);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.relocate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RelocationExtension {
+
+    public static final String EXTENSION_NAME = "spigotRelocation";
+
+    private final List<String> _rules = new ArrayList<>();
+
+    /**
+     * Relocates the given package of the plugin and its shaded dependencies
+     * to the given package.
+     *
+     * @param pattern The package to relocate
+     * @param destination The package to relocate to
+     */
+    public void relocate(String pattern, String destination) {
+        _rules.add(pattern + Relocator.RULE_SEPARATOR + destination);
+    }
+
+    /**
+     * Gets the relocation rules, each a package and its new package
+     * separated by {@code =}.
+     *
+     * @return The rules
+     */
+    public List<String> getRules() {
+        return Collections.unmodifiableList(_rules);
+    }
+}
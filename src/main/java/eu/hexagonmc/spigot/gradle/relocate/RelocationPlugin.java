@@ -0,0 +1,112 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.relocate;
+
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.file.DuplicatesStrategy;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.Jar;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+public class RelocationPlugin implements Plugin<Project> {
+
+    public static final String CONFIGURATION_NAME = "spigotShade";
+    public static final String CLASSES_TASK_NAME = "relocatePluginClasses";
+    public static final String SERVICES_TASK_NAME = "mergeRelocatedServices";
+    public static final String JAR_TASK_NAME = "relocatedJar";
+    private static final String SERVICES_PATTERN = PluginClasses.SERVICES + "**";
+    private static final Attribute<String> ARTIFACT_TYPE_ATTRIBUTE = Attribute.of("artifactType", String.class);
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        RelocationExtension extension = project.getExtensions().create(RelocationExtension.EXTENSION_NAME, RelocationExtension.class);
+
+        // The rules are parameters of the transform, so it can only be registered once they are known
+        project.afterEvaluate(evaluated -> {
+            String rules = String.join(RelocationTransform.RULES_SEPARATOR, extension.getRules());
+            project.getDependencies().registerTransform(transform -> {
+                transform.getFrom().attribute(ARTIFACT_TYPE_ATTRIBUTE, "jar");
+                transform.getTo().attribute(ARTIFACT_TYPE_ATTRIBUTE, RelocationTransform.ARTIFACT_TYPE);
+                transform.artifactTransform(RelocationTransform.class, config -> config.params(rules));
+            });
+        });
+
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            ConfigurationContainer configurations = project.getConfigurations();
+            Configuration shade = configurations.create(CONFIGURATION_NAME, configuration -> {
+                configuration.setVisible(false);
+                configuration.setDescription("Dependencies relocated into the plugin jar.");
+            });
+            configurations.getByName(JavaPlugin.COMPILE_ONLY_CONFIGURATION_NAME).extendsFrom(shade);
+            configurations.getByName(JavaPlugin.TEST_IMPLEMENTATION_CONFIGURATION_NAME).extendsFrom(shade);
+            FileCollection relocated = shade.getIncoming()
+                    .artifactView(view -> view.attributes(attributes -> {
+                        attributes.attribute(ARTIFACT_TYPE_ATTRIBUTE, RelocationTransform.ARTIFACT_TYPE);
+                    }))
+                    .getFiles();
+
+            JavaPluginConvention java = project.getConvention().getPlugin(JavaPluginConvention.class);
+            SourceSet main = java.getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            TaskContainer tasks = project.getTasks();
+            TaskProvider<RelocatePluginClassesTask> classes = tasks.register(CLASSES_TASK_NAME, RelocatePluginClassesTask.class, task -> {
+                task.setDescription("Relocates the classes of the plugin to the packages of its shaded dependencies.");
+                task.getClasses().from(main.getOutput());
+                task.getRules().set(project.provider(extension::getRules));
+            });
+            TaskProvider<MergeServicesTask> services = tasks.register(SERVICES_TASK_NAME, MergeServicesTask.class, task -> {
+                task.setDescription("Merges the service files of the plugin and its relocated shaded dependencies.");
+                task.getFiles().from(classes, relocated);
+            });
+            tasks.register(JAR_TASK_NAME, Jar.class, task -> {
+                task.setGroup("build");
+                task.setDescription("Assembles the plugin jar with its relocated shaded dependencies.");
+                task.setClassifier("relocated");
+                // Service files are merged, of other duplicates the plugin's own file wins
+                task.setDuplicatesStrategy(DuplicatesStrategy.EXCLUDE);
+                task.from(classes, spec -> spec.exclude(SERVICES_PATTERN));
+                task.from(services);
+                task.dependsOn(relocated);
+                task.from((Callable<List<FileTree>>) () -> relocated.getFiles().stream()
+                        .map(project::zipTree)
+                        .collect(Collectors.toList()), spec -> spec.exclude("META-INF/MANIFEST.MF", SERVICES_PATTERN));
+            });
+        });
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.relocate;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.transform.ArtifactTransform;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import javax.inject.Inject;
+
+public class RelocationTransform extends ArtifactTransform {
+
+    public static final String ARTIFACT_TYPE = "spigot-relocated-jar";
+    static final String RULES_SEPARATOR = "\n";
+
+    private final Relocator _relocator;
+
+    /**
+     * Creates a new transform for the given relocation rules. The rules are
+     * part of the cache key of the transformed jars, so every dependency is
+     * relocated once per set of rules.
+     *
+     * @param rules The rules separated by {@link #RULES_SEPARATOR}
+     */
+    @Inject
+    public RelocationTransform(String rules) {
+        _relocator = new Relocator(rules.isEmpty() ? Collections.emptyList() : Arrays.asList(rules.split(RULES_SEPARATOR)));
+    }
+
+    /**
+     * Relocates the packages of the given dependency jar. Jars without
+     * relocation rules and all other files are returned unchanged.
+     *
+     * @param input The file to transform
+     * @return The transformed files
+     */
+    @Override
+    public List<File> transform(File input) {
+        if (!input.isFile() || _relocator.isEmpty()) {
+            return Collections.singletonList(input);
+        }
+        File output = new File(getOutputDirectory(), input.getName());
+        try (ZipFile zip = new ZipFile(input); OutputStream out = new FileOutputStream(output)) {
+            _relocator.relocateJar(zip, out);
+        } catch (IOException e) {
+            throw new GradleException("Could not relocate " + input.getName(), e);
+        }
+        return Collections.singletonList(output);
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.relocate;
+
+import com.google.common.io.ByteStreams;
+import eu.hexagonmc.spigot.gradle.PluginClasses;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+final class Relocator extends Remapper {
+
+    static final String RULE_SEPARATOR = "=";
+
+    // Internal name prefix -> relocated internal name prefix, longest prefix first
+    private final Map<String, String> _prefixes = new LinkedHashMap<>();
+
+    /**
+     * Creates a new relocator for the given rules.
+     *
+     * @param rules The rules, each a package and its new package separated
+     *        by {@link #RULE_SEPARATOR}
+     */
+    Relocator(List<String> rules) {
+        List<String> sorted = new ArrayList<>(rules);
+        // Nested packages must win over the packages containing them
+        sorted.sort(Comparator.comparingInt((String rule) -> rule.indexOf(RULE_SEPARATOR)).reversed());
+        for (String rule : sorted) {
+            int separator = rule.indexOf(RULE_SEPARATOR);
+            _prefixes.put(PluginClasses.toInternalName(rule.substring(0, separator)) + "/",
+                    PluginClasses.toInternalName(rule.substring(separator + 1)) + "/");
+        }
+    }
+
+    /**
+     * Gets if this relocator has no rules.
+     *
+     * @return True if nothing is relocated false otherwise
+     */
+    boolean isEmpty() {
+        return _prefixes.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public String map(String internalName) {
+        for (Map.Entry<String, String> prefix : _prefixes.entrySet()) {
+            if (internalName.startsWith(prefix.getKey())) {
+                return prefix.getValue() + internalName.substring(prefix.getKey().length());
+            }
+        }
+        return internalName;
+    }
+
+    /**
+     * {@inheritDoc}. Class names in string constants are relocated as well,
+     * as libraries load optional classes by name.
+     */
+    @Override
+    public Object mapValue(Object value) {
+        if (value instanceof String) {
+            String string = (String) value;
+            String relocated = map(string);
+            if (relocated.equals(string) && string.indexOf('/') < 0) {
+                relocated = map(PluginClasses.toInternalName(string)).replace('/', '.');
+            }
+            return relocated;
+        }
+        return super.mapValue(value);
+    }
+
+    /**
+     * Relocates the given class file.
+     *
+     * @param bytes The class file
+     * @return The relocated class file
+     */
+    byte[] relocateClass(byte[] bytes) {
+        ClassReader reader = new ClassReader(bytes);
+        ClassWriter writer = new ClassWriter(0);
+        reader.accept(new ClassRemapper(writer, this), 0);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Relocates the given jar entry name. Resources in relocated packages
+     * move with their classes and service files are renamed after their
+     * relocated service.
+     *
+     * @param name The jar entry name
+     * @return The relocated name
+     */
+    String relocatePath(String name) {
+        if (name.startsWith(PluginClasses.SERVICES)) {
+            return PluginClasses.SERVICES + map(PluginClasses.toInternalName(name.substring(PluginClasses.SERVICES.length()))).replace('/', '.');
+        }
+        return map(name);
+    }
+
+    /**
+     * Relocates the given jar. Class files, resource paths and service files
+     * are relocated, signatures are dropped as they no longer match.
+     *
+     * @param zip The jar
+     * @param output The relocated jar
+     * @throws IOException If the jar could not be read or written
+     */
+    void relocateJar(ZipFile zip, OutputStream output) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(output)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String name = entry.getName();
+                if (entry.isDirectory() || isSignature(name)) {
+                    continue;
+                }
+                byte[] bytes = read(zip, entry);
+                if (PluginClasses.isClass(name)) {
+                    bytes = relocateClass(bytes);
+                } else if (name.startsWith(PluginClasses.SERVICES)) {
+                    bytes = relocateServices(bytes);
+                }
+                ZipEntry copy = new ZipEntry(relocatePath(name));
+                copy.setTime(entry.getTime());
+                out.putNextEntry(copy);
+                out.write(bytes);
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Relocates the providers listed in the given service file.
+     *
+     * @param bytes The service file
+     * @return The relocated service file
+     */
+    byte[] relocateServices(byte[] bytes) {
+        StringBuilder services = new StringBuilder();
+        for (String line : new String(bytes, StandardCharsets.UTF_8).split("\\R")) {
+            String provider = line.replaceFirst("#.*", "").trim();
+            services.append(provider.isEmpty() ? line : map(PluginClasses.toInternalName(provider)).replace('/', '.')).append('\n');
+        }
+        return services.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isSignature(String name) {
+        return name.startsWith("META-INF/") && name.indexOf('/', "META-INF/".length()) < 0
+                && (name.endsWith(".SF") || name.endsWith(".DSA") || name.endsWith(".RSA") || name.endsWith(".EC"));
+    }
+
+    private static byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class LatencyHistogram {
+
+    // Log-linear buckets like an HDR histogram with 3 significant bits, at most 12.5% error
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a single latency. Recording is lock-free and does not
+     * allocate.
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        _counts.incrementAndGet(index(nanos));
+    }
+
+    /**
+     * Gets the number of recorded latencies.
+     *
+     * @return The number of latencies
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += _counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the latency below which the given percentage of the recorded
+     * latencies fall, rounded up to the upper bound of its bucket.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The latency in nanoseconds or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = _counts.get(i);
+            total += counts[i];
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target && counts[i] > 0) {
+                return i + 1 < BUCKETS ? lowestValue(i + 1) - 1 : Long.MAX_VALUE;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the bucket of the given latency.
+     *
+     * @param nanos The latency in nanoseconds
+     * @return The bucket
+     */
+    static int index(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Gets the lowest latency of the given bucket.
+     *
+     * @param index The bucket
+     * @return The latency in nanoseconds
+     */
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (index / SUB_BUCKETS - 1);
+    }
+
+    /**
+     * Creates the given number of empty histograms, called once when the
+     * probes of a plugin are initialized.
+     *
+     * @param count The number of histograms
+     * @return The histograms
+     */
+    public static LatencyHistogram[] create(int count) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    /**
+     * Formats the given histograms, one line per probe with recorded
+     * latencies, slowest 99th percentile first.
+     *
+     * @param names The names of the probes separated by new lines
+     * @param histograms The histograms of the probes
+     * @return The lines
+     */
+    public static String[] report(String names, LatencyHistogram[] histograms) {
+        String[] probes = names.split("\n");
+        List<Integer> recorded = new ArrayList<>();
+        for (int i = 0; i < histograms.length; i++) {
+            if (histograms[i].getCount() > 0) {
+                recorded.add(i);
+            }
+        }
+        recorded.sort((a, b) -> Long.compare(histograms[b].getValueAtPercentile(99), histograms[a].getValueAtPercentile(99)));
+        List<String> lines = new ArrayList<>();
+        lines.add("Latency in microseconds (count p50 p90 p99 p99.9) of " + recorded.size() + " probes:");
+        for (int probe : recorded) {
+            StringBuilder line = new StringBuilder(probes[probe]).append(' ').append(histograms[probe].getCount());
+            for (double percentile : PERCENTILES) {
+                line.append(' ').append(String.format(Locale.ROOT, "%.1f", histograms[probe].getValueAtPercentile(percentile) / 1000.0));
+            }
+            lines.add(line.toString());
+        }
+        return lines.toArray(new String[0]);
+    }
+}
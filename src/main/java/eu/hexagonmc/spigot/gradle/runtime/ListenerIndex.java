@@ -0,0 +1,57 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.runtime;
+
+public final class ListenerIndex {
+
+    public static final String REGISTRAR_SUFFIX = "$EventRegistrar";
+
+    private ListenerIndex() {
+    }
+
+    /**
+     * Registers the event handlers of the given listener through the
+     * {@link ListenerRegistrar} generated at build time. If no registrar was
+     * generated for the listener, e.g. because it has private handlers,
+     * nothing is registered and the caller has to fall back to
+     * PluginManager#registerEvents.
+     *
+     * @param listener The listener, an org.bukkit.event.Listener
+     * @param plugin The plugin owning the listener, an org.bukkit.plugin.Plugin
+     * @return True if the listener was registered false otherwise
+     */
+    public static boolean register(Object listener, Object plugin) {
+        Class<?> type = listener.getClass();
+        ListenerRegistrar registrar;
+        try {
+            Class<?> registrarType = Class.forName(type.getName() + REGISTRAR_SUFFIX, true, type.getClassLoader());
+            registrar = (ListenerRegistrar) registrarType.getConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the registrar of " + type.getName(), e);
+        }
+        registrar.register(listener, plugin);
+        return true;
+    }
+}
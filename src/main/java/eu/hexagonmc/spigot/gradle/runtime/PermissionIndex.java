@@ -0,0 +1,205 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.runtime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class PermissionIndex {
+
+    public static final String RESOURCE = "plugin.permissions";
+
+    private static final int MAGIC = 0x53504749;
+    private static final int VERSION = 1;
+
+    private final String[] _names;
+    private final String[] _descriptions;
+    private final String[] _defaults;
+    private final Map<String, Boolean>[] _children;
+
+    /**
+     * Creates a new index of flattened permissions. All arrays must have the
+     * same length.
+     *
+     * @param names The names of the permissions
+     * @param descriptions The descriptions of the permissions, entries may be
+     *        null
+     * @param defaults The default values of the permissions as used in the
+     *        plugin.yml, entries may be null
+     * @param children The transitive children of the permissions
+     */
+    public PermissionIndex(String[] names, String[] descriptions, String[] defaults, Map<String, Boolean>[] children) {
+        if (descriptions.length != names.length || defaults.length != names.length || children.length != names.length) {
+            throw new IllegalArgumentException("All arrays must have the same length");
+        }
+        _names = names;
+        _descriptions = descriptions;
+        _defaults = defaults;
+        _children = children;
+    }
+
+    /**
+     * Loads the index shipped with the jar of the given plugin class.
+     *
+     * @param plugin The main class of the plugin
+     * @return The {@link PermissionIndex}
+     * @throws IOException If the index is missing or could not be read
+     */
+    public static PermissionIndex load(Class<?> plugin) throws IOException {
+        InputStream input = plugin.getResourceAsStream("/" + RESOURCE);
+        if (input == null) {
+            throw new FileNotFoundException(RESOURCE);
+        }
+        try {
+            return read(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads an index from the given {@link InputStream}. The stream is not
+     * closed.
+     *
+     * @param input The {@link InputStream}
+     * @return The {@link PermissionIndex}
+     * @throws IOException If the index could not be read
+     */
+    @SuppressWarnings("unchecked")
+    public static PermissionIndex read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Unsupported permission index");
+        }
+        int size = data.readInt();
+        String[] names = new String[size];
+        String[] descriptions = new String[size];
+        String[] defaults = new String[size];
+        Map<String, Boolean>[] children = new Map[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = data.readUTF();
+            descriptions[i] = data.readBoolean() ? data.readUTF() : null;
+            defaults[i] = data.readBoolean() ? data.readUTF() : null;
+            int count = data.readInt();
+            Map<String, Boolean> childs = new LinkedHashMap<>(count * 4 / 3 + 1);
+            for (int j = 0; j < count; j++) {
+                childs.put(data.readUTF(), data.readBoolean());
+            }
+            children[i] = Collections.unmodifiableMap(childs);
+        }
+        return new PermissionIndex(names, descriptions, defaults, children);
+    }
+
+    /**
+     * Writes this index to the given {@link OutputStream}. The stream is
+     * flushed but not closed.
+     *
+     * @param output The {@link OutputStream}
+     * @throws IOException If the index could not be written
+     */
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(_names.length);
+        for (int i = 0; i < _names.length; i++) {
+            data.writeUTF(_names[i]);
+            writeOptional(data, _descriptions[i]);
+            writeOptional(data, _defaults[i]);
+            data.writeInt(_children[i].size());
+            for (Map.Entry<String, Boolean> child : _children[i].entrySet()) {
+                data.writeUTF(child.getKey());
+                data.writeBoolean(child.getValue());
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Gets the number of permissions in this index.
+     *
+     * @return The number of permissions
+     */
+    public int size() {
+        return _names.length;
+    }
+
+    /**
+     * Gets the name of the permission at the given position.
+     *
+     * @param index The position
+     * @return The name
+     */
+    public String getName(int index) {
+        return _names[index];
+    }
+
+    /**
+     * Gets the description of the permission at the given position.
+     *
+     * @param index The position
+     * @return The description or null
+     */
+    public String getDescription(int index) {
+        return _descriptions[index];
+    }
+
+    /**
+     * Gets the default value of the permission at the given position as used
+     * in the plugin.yml, e.g. "op" or "not op".
+     *
+     * @param index The position
+     * @return The default value or null
+     */
+    public String getDefault(int index) {
+        return _defaults[index];
+    }
+
+    /**
+     * Gets the transitive children of the permission at the given position.
+     * Children of children are already resolved, so no recursion is needed
+     * when registering the permission.
+     *
+     * @param index The position
+     * @return The children and their values
+     */
+    public Map<String, Boolean> getChildren(int index) {
+        return _children[index];
+    }
+
+    private static void writeOptional(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.server;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.Jar;
+
+public class RunServerPlugin implements Plugin<Project> {
+
+    public static final String TASK_NAME = "runServer";
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public void apply(Project project) {
+        project.getPlugins().withType(JavaPlugin.class, plugin -> {
+            JavaPluginConvention java = project.getConvention().getPlugin(JavaPluginConvention.class);
+            SourceSet main = java.getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            TaskProvider<Jar> jar = project.getTasks().withType(Jar.class).named(JavaPlugin.JAR_TASK_NAME);
+            project.getTasks().register(TASK_NAME, RunServerTask.class, task -> {
+                task.setGroup("verification");
+                task.setDescription("Loads and enables the plugin jar in a stand-in server and reports the time of every phase.");
+                task.dependsOn(jar);
+                task.getPluginJar().set(project.getLayout().file(jar.map(Jar::getArchivePath)));
+                task.getClasspath().from(main.getCompileClasspath());
+                task.getReport().set(project.getLayout().getBuildDirectory().file("reports/" + TASK_NAME + "/phases.tsv"));
+            });
+        });
+    }
+}
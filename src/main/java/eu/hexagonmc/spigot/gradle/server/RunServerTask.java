@@ -0,0 +1,210 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.server;
+
+import eu.hexagonmc.spigot.gradle.SpigotGradle;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class RunServerTask extends DefaultTask {
+
+    private static final String SERVER_CLASS = "eu.hexagonmc.spigot.gradle.server.StandInServer";
+
+    private final RegularFileProperty _pluginJar;
+    private final ConfigurableFileCollection _plugins;
+    private final ConfigurableFileCollection _classpath;
+    private final Property<String> _executable;
+    private final Property<Long> _maxEnableTime;
+    private final RegularFileProperty _report;
+
+    /**
+     * Constructor sets up the task properties.
+     */
+    public RunServerTask() {
+        _pluginJar = getProject().getLayout().fileProperty();
+        _plugins = getProject().getLayout().configurableFiles();
+        _classpath = getProject().getLayout().configurableFiles();
+        _executable = getProject().getObjects().property(String.class);
+        _maxEnableTime = getProject().getObjects().property(Long.class);
+        _report = getProject().getLayout().fileProperty();
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /**
+     * Gets the property holding the plugin jar to run.
+     *
+     * @return The property
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public RegularFileProperty getPluginJar() {
+        return _pluginJar;
+    }
+
+    /**
+     * Gets the jars of other plugins the plugin depends on. They are loaded
+     * and enabled before the plugin in the given order.
+     *
+     * @return The plugin jars
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public ConfigurableFileCollection getPlugins() {
+        return _plugins;
+    }
+
+    /**
+     * Gets the classpath of the stand-in server. It has to contain the
+     * Spigot API.
+     *
+     * @return The classpath
+     */
+    @Classpath
+    public ConfigurableFileCollection getClasspath() {
+        return _classpath;
+    }
+
+    /**
+     * Gets the property holding the java executable to launch. Defaults to
+     * the java executable running Gradle.
+     *
+     * @return The property
+     */
+    @Input
+    @Optional
+    public Property<String> getExecutable() {
+        return _executable;
+    }
+
+    /**
+     * Gets the property holding the maximum time in milliseconds the plugin
+     * may take to enable. The task fails if the plugin takes longer.
+     *
+     * @return The property
+     */
+    @Input
+    @Optional
+    public Property<Long> getMaxEnableTime() {
+        return _maxEnableTime;
+    }
+
+    /**
+     * Gets the property holding the report file. Each line contains the
+     * plugin, the phase, the wall time in nanoseconds, the allocated bytes
+     * and the number of loaded classes separated by tabs.
+     *
+     * @return The property
+     */
+    @OutputFile
+    public RegularFileProperty getReport() {
+        return _report;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @TaskAction
+    void run() {
+        Path pluginsDir = new File(getTemporaryDir(), "plugins").toPath();
+        List<String> args = new ArrayList<>();
+        try {
+            // The server creates the data folders next to the plugin jars
+            SpigotGradle.cleanDirectory(pluginsDir);
+            for (File plugin : _plugins.getFiles()) {
+                args.add(copy(plugin, pluginsDir));
+            }
+            args.add(copy(_pluginJar.get().getAsFile(), pluginsDir));
+        } catch (IOException e) {
+            throw new GradleException("Could not prepare the plugins directory", e);
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        getProject().javaexec(spec -> {
+            if (_executable.isPresent()) {
+                spec.setExecutable(_executable.get());
+            }
+            spec.setClasspath(getProject().files(SpigotGradle.getLocation(), _classpath));
+            spec.setMain(SERVER_CLASS);
+            spec.setWorkingDir(getTemporaryDir());
+            spec.setArgs(args);
+            spec.setStandardOutput(output);
+        });
+
+        List<String> report = new ArrayList<>();
+        long enableTime = -1;
+        String pluginName = null;
+        for (String line : new String(output.toByteArray(), StandardCharsets.UTF_8).split("\\R")) {
+            if (!line.startsWith(StandInServer.PHASE_PREFIX)) {
+                continue;
+            }
+            String[] phase = line.substring(StandInServer.PHASE_PREFIX.length()).split("\t");
+            report.add(String.join("\t", phase));
+            long millis = TimeUnit.NANOSECONDS.toMillis(Long.parseLong(phase[2]));
+            getLogger().lifecycle("{} {}: {} ms, {} bytes allocated, {} classes loaded", phase[0], phase[1], millis, phase[3], phase[4]);
+            if ("onEnable".equals(phase[1])) {
+                pluginName = phase[0];
+                enableTime = millis;
+            }
+        }
+        try {
+            File reportFile = _report.get().getAsFile();
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            Files.write(reportFile.toPath(), report, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Could not write the server report", e);
+        }
+        if (_maxEnableTime.isPresent() && enableTime > _maxEnableTime.get()) {
+            throw new GradleException("Plugin " + pluginName + " took " + enableTime + " ms to enable, the maximum is "
+                    + _maxEnableTime.get() + " ms");
+        }
+    }
+
+    private static String copy(File plugin, Path pluginsDir) throws IOException {
+        Path target = pluginsDir.resolve(plugin.getName());
+        Files.copy(plugin.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+        return target.toString();
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle.server;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.SimplePluginManager;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+public final class StandInServer implements InvocationHandler {
+
+    public static final String PHASE_PREFIX = "Phase: ";
+    private static final String NAME = "Spigot-Gradle stand-in";
+
+    private final Logger _logger = Logger.getLogger(NAME);
+    private final SimpleCommandMap _commandMap;
+    private final SimplePluginManager _pluginManager;
+    private final Server _server;
+    private final ThreadMXBean _threads = ManagementFactory.getThreadMXBean();
+    private final ClassLoadingMXBean _classLoading = ManagementFactory.getClassLoadingMXBean();
+
+    /**
+     * Creates a new stand-in server.
+     */
+    private StandInServer() {
+        _server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[] {Server.class}, this);
+        _commandMap = new SimpleCommandMap(_server);
+        _pluginManager = new SimplePluginManager(_server, _commandMap);
+    }
+
+    /**
+     * Loads, enables and disables the given plugins in order and prints the
+     * wall time, allocated bytes and loaded classes of every phase.
+     *
+     * @param args The plugin jars, dependencies first
+     * @throws Exception If a plugin could not be loaded
+     */
+    @SuppressWarnings("deprecation")
+    public static void main(String[] args) throws Exception {
+        StandInServer server = new StandInServer();
+        Bukkit.setServer(server._server);
+        // Loaded through the plugin manager like on a server, so depend is resolved against the plugins loaded before
+        server._pluginManager.registerInterface(JavaPluginLoader.class);
+
+        List<Plugin> plugins = new ArrayList<>();
+        for (String arg : args) {
+            File file = new File(arg);
+            Plugin plugin = server.measure(file.getName(), "load", () -> server._pluginManager.loadPlugin(file));
+            server.measure(plugin.getName(), "onLoad", () -> {
+                plugin.onLoad();
+                return null;
+            });
+            plugins.add(plugin);
+        }
+        for (Plugin plugin : plugins) {
+            server.measure(plugin.getName(), "onEnable", () -> {
+                server._pluginManager.enablePlugin(plugin);
+                return null;
+            });
+            if (!plugin.isEnabled()) {
+                System.err.println("Plugin " + plugin.getName() + " could not be enabled");
+                System.exit(1);
+            }
+        }
+        for (int i = plugins.size() - 1; i >= 0; i--) {
+            Plugin plugin = plugins.get(i);
+            server.measure(plugin.getName(), "onDisable", () -> {
+                server._pluginManager.disablePlugin(plugin);
+                return null;
+            });
+        }
+    }
+
+    private <T> T measure(String plugin, String phase, Phase<T> action) throws Exception {
+        long thread = Thread.currentThread().getId();
+        long classes = _classLoading.getTotalLoadedClassCount();
+        long allocated = getAllocatedBytes(thread);
+        long start = System.nanoTime();
+        T result = action.run();
+        long elapsed = System.nanoTime() - start;
+        allocated = allocated < 0 ? -1 : getAllocatedBytes(thread) - allocated;
+        classes = _classLoading.getTotalLoadedClassCount() - classes;
+        System.out.println(PHASE_PREFIX + String.join("\t", plugin, phase, Long.toString(elapsed), Long.toString(allocated),
+                Long.toString(classes)));
+        return result;
+    }
+
+    private long getAllocatedBytes(long thread) {
+        if (_threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) _threads).getThreadAllocatedBytes(thread);
+        }
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "getName":
+                return NAME;
+            case "getVersion":
+            case "getBukkitVersion":
+                return Server.class.getPackage().getImplementationVersion();
+            case "getLogger":
+                return _logger;
+            case "getPluginManager":
+                return _pluginManager;
+            case "getPluginCommand":
+                Command command = _commandMap.getCommand((String) args[0]);
+                return command instanceof PluginCommand ? command : null;
+            case "isPrimaryThread":
+                return true;
+            case "getWorldContainer":
+                return new File(".");
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return NAME;
+            default:
+                return stub(method.getReturnType());
+        }
+    }
+
+    /**
+     * Creates an empty value for the given type. Interfaces are implemented
+     * by a proxy which returns empty values itself, so plugins can use the
+     * scheduler and similar services during enable.
+     *
+     * @param type The type
+     * @return The empty value
+     */
+    private static Object stub(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == double.class) {
+            return 0d;
+        } else if (type == String.class) {
+            return "";
+        } else if (type == List.class || type == Collection.class) {
+            return Collections.emptyList();
+        } else if (type == Set.class) {
+            return Collections.emptySet();
+        } else if (type == Map.class) {
+            return Collections.emptyMap();
+        } else if (type.isInterface()) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return type.getSimpleName();
+                    default:
+                        return stub(method.getReturnType());
+                }
+            });
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface Phase<T> {
+
+        T run() throws Exception;
+    }
+}
@@ -24,11 +24,18 @@ package eu.hexagonmc.spigot.gradle;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
+import static org.gradle.testkit.runner.TaskOutcome.FROM_CACHE;
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
+import eu.hexagonmc.spigot.gradle.runtime.PermissionIndex;
 import eu.hexagonmc.spigot.gradle.util.ResourceFile;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionDefault;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.SimplePluginManager;
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
 import org.junit.Before;
@@ -37,13 +44,18 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.List;
+import java.util.zip.ZipFile;
 
 public class SpigotMetaPluginTest {
 
     @Rule public final TemporaryFolder _testProjectDir = new TemporaryFolder();
+    @Rule public final TemporaryFolder _relocatedProjectDir = new TemporaryFolder();
+    @Rule public final TemporaryFolder _buildCacheDir = new TemporaryFolder();
     @Rule public ResourceFile _gradleProperties = new ResourceFile("/testkit-gradle.properties");
     private File _buildFile;
 
@@ -198,4 +210,232 @@ public class SpigotMetaPluginTest {
         assertThat(lines.get(11)).endsWith("false");
         assertThat(lines.get(12)).endsWith("TP1");
     }
+
+    @Test
+    public void testGenerateMetadataStreamed() throws IOException {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("meta-base.gradle"), Charsets.UTF_8)
+                + "\ngenerateMetadata {\n    streamMetadata = true\n}\n"
+                + "spigot {\n    permission('test.permission') {\n        value 'OP'\n        child 'test.child', false\n    }\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("generateMetadata")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(SUCCESS);
+        File spigotYml = new File(_testProjectDir.getRoot(), "build/tmp/generateMetadata/plugin.yml");
+        assertWithMessage("plugin.yml file was not generated").that(spigotYml.exists()).isTrue();
+        List<String> lines = Files.readAllLines(spigotYml.toPath(), Charsets.UTF_8);
+        assertThat(lines).containsAllOf("name: \"TestPlugin\"", "version: \"1.0-SNAPSHOT\"", "permissions:",
+                "  test.permission:", "    default: \"op\"", "      test.child: false").inOrder();
+    }
+
+    @Test
+    public void testGeneratePermissionIndex() throws IOException {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("meta-base.gradle"), Charsets.UTF_8)
+                + "\ngenerateMetadata {\n    permissionIndex = true\n}\n"
+                + "spigot {\n    permission('test.admin') {\n        child 'test.user', false\n    }\n"
+                + "    permission('test.user') {\n        child 'test.chat'\n    }\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("generateMetadata", RuntimePlugin.TASK_NAME)
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(SUCCESS);
+        File generateMetadataDir = new File(_testProjectDir.getRoot(), "build/tmp/generateMetadata");
+        File helper = new File(_testProjectDir.getRoot(),
+                "build/tmp/" + RuntimePlugin.TASK_NAME + "/classes/eu/hexagonmc/testplugin/runtime/PermissionIndex.class");
+        assertWithMessage("runtime helper was not copied").that(helper.exists()).isTrue();
+        PermissionIndex index;
+        try (InputStream input = new FileInputStream(new File(generateMetadataDir, PermissionIndex.RESOURCE))) {
+            index = PermissionIndex.read(input);
+        }
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.getName(0)).isEqualTo("test.admin");
+        assertThat(index.getChildren(0)).containsExactly("test.user", false, "test.chat", false).inOrder();
+        assertThat(index.getChildren(1)).containsExactly("test.chat", true);
+    }
+
+    @Test
+    public void testPermissionIndexRegistersOnServer() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("meta-base.gradle"), Charsets.UTF_8)
+                + "\ngenerateMetadata {\n    permissionIndex = true\n}\n"
+                + "spigot {\n    main 'eu.hexagonmc.Main'\n    permission('test.admin') {\n        value 'OP'\n        child 'test.user'\n    }\n"
+                + "    permission 'test.user'\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("jar")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":jar").getOutcome()).isEqualTo(SUCCESS);
+        File jar = new File(_testProjectDir.getRoot(), "build/libs/TestPlugin-1.0-SNAPSHOT.jar");
+        try (ZipFile zip = new ZipFile(jar)) {
+            // The server registers the permissions of the plugin.yml before onEnable
+            PluginDescriptionFile description = new PluginDescriptionFile(zip.getInputStream(zip.getEntry("plugin.yml")));
+            SimplePluginManager manager = new SimplePluginManager(null, null);
+            description.getPermissions().forEach(manager::addPermission);
+            assertThat(description.getPermissions()).isEmpty();
+
+            PermissionIndex index = PermissionIndex.read(zip.getInputStream(zip.getEntry(PermissionIndex.RESOURCE)));
+            for (int i = 0; i < index.size(); i++) {
+                Permission permission = new Permission(index.getName(i), index.getDescription(i), index.getChildren(i));
+                if (index.getDefault(i) != null) {
+                    permission.setDefault(PermissionDefault.getByName(index.getDefault(i)));
+                }
+                manager.addPermission(permission);
+            }
+            assertThat(manager.getPermission("test.admin").getDefault()).isEqualTo(PermissionDefault.OP);
+            assertThat(manager.getPermission("test.admin").getChildren()).containsExactly("test.user", true);
+            assertThat(manager.getPermission("test.user")).isNotNull();
+        }
+    }
+
+    @Test
+    public void testGeneratePermissionIndexWithCycle() throws IOException {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("meta-base.gradle"), Charsets.UTF_8)
+                + "\ngenerateMetadata {\n    permissionIndex = true\n}\n"
+                + "spigot {\n    permission('test.a') {\n        child 'test.b'\n    }\n"
+                + "    permission('test.b') {\n        child 'test.a'\n    }\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("generateMetadata")
+                .withPluginClasspath()
+                .buildAndFail();
+
+        assertThat(result.getOutput()).contains("Permission cycle detected");
+    }
+
+    @Test
+    public void testPluginLoadOrder() throws IOException {
+        writeLoadOrderProjects("project(':core') {\n    spigot {\n        dependency 'shop', 'SOFTDEPEND'\n    }\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("pluginLoadOrder")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":pluginLoadOrder").getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Ignoring the soft order shop -> core");
+        assertThat(result.getOutput()).contains("Critical path: 3 plugins");
+        File loadOrder = new File(_testProjectDir.getRoot(), "build/pluginLoadOrder/load-order.txt");
+        assertThat(Files.readAllLines(loadOrder.toPath(), Charsets.UTF_8)).containsExactly("core", "economy", "shop").inOrder();
+    }
+
+    @Test
+    public void testPluginLoadOrderWithMissingDependency() throws IOException {
+        writeLoadOrderProjects("project(':core') {\n    spigot {\n        dependency 'Vault', 'DEPEND'\n    }\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("pluginLoadOrder")
+                .withPluginClasspath()
+                .buildAndFail();
+
+        assertThat(result.getOutput()).contains("Plugin core depends on the unknown plugin Vault");
+    }
+
+    private void writeLoadOrderProjects(String extra) throws IOException {
+        TestUtil.writeFile(new File(_testProjectDir.getRoot(), "settings.gradle"),
+                Resources.toString(Resources.getResource("settings.gradle"), Charsets.UTF_8) + "\ninclude 'core', 'economy', 'shop', 'proxy'\n");
+        TestUtil.writeFile(_buildFile, "plugins {\n    id 'eu.hexagonmc.gradle.spigot.loadorder'\n}\n"
+                + "pluginLoadOrder {\n    externalPlugins = ['Essentials']\n}\n"
+                + "subprojects {\n    apply plugin: 'java'\n    apply plugin: 'eu.hexagonmc.gradle.spigot.meta'\n}\n"
+                + "configure(subprojects - project(':proxy')) {\n    spigot {\n        main \"eu.hexagonmc.${project.name}.Main\"\n    }\n}\n"
+                + "project(':proxy') {\n    bungee {\n        main 'eu.hexagonmc.proxy.Main'\n    }\n}\n"
+                + "project(':economy') {\n    spigot {\n        dependency 'core', 'DEPEND'\n        dependency 'Essentials', 'DEPEND'\n    }\n}\n"
+                + "project(':shop') {\n    spigot {\n        dependency 'economy', 'DEPEND'\n        dependency 'Vault', 'SOFTDEPEND'\n    }\n}\n"
+                + extra);
+    }
+
+    @Test
+    public void testGenerateMetadataResolvesOnce() throws IOException {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("meta-base.gradle"), Charsets.UTF_8)
+                + "\ndef resolutions = 0\n"
+                + "spigot {\n    website { resolutions++; 'https://hexagonmc.eu' }\n}\n"
+                + "gradle.buildFinished { println \"Website resolved ${resolutions} times\" }\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("generateMetadata")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Website resolved 1 times");
+    }
+
+    @Test
+    public void testGenerateMetadataUpToDate() throws IOException {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("meta-detail.gradle"), Charsets.UTF_8));
+        File resourceDir = new File(_testProjectDir.getRoot(), "src/main/resources");
+        resourceDir.mkdirs();
+        TestUtil.writeFile(new File(resourceDir, "plugin.yml"), Resources.toString(Resources.getResource("plugin.yml"), Charsets.UTF_8));
+
+        GradleRunner runner = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("generateMetadata")
+                .withPluginClasspath();
+
+        BuildResult result = runner.build();
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(SUCCESS);
+
+        result = runner.build();
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(UP_TO_DATE);
+
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("meta-detail.gradle"), Charsets.UTF_8)
+                .replace("1.2-SNAPSHOT", "1.3-SNAPSHOT"));
+        result = runner.build();
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(SUCCESS);
+
+        result = runner.build();
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(UP_TO_DATE);
+
+        TestUtil.writeFile(new File(resourceDir, "plugin.yml"), Resources.toString(Resources.getResource("plugin.yml"), Charsets.UTF_8)
+                .replace("1.1-SNAPSHOT", "1.4-SNAPSHOT"));
+        result = runner.build();
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(SUCCESS);
+    }
+
+    @Test
+    public void testGenerateMetadataFromCache() throws IOException {
+        File cacheDir = _buildCacheDir.getRoot();
+        String settings = Resources.toString(Resources.getResource("settings.gradle"), Charsets.UTF_8)
+                + "\nbuildCache {\n    local {\n        directory = new File('" + cacheDir.getAbsolutePath().replace('\\', '/') + "')\n    }\n}\n";
+        TestUtil.writeFile(new File(_testProjectDir.getRoot(), "settings.gradle"), settings);
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("meta-detail.gradle"), Charsets.UTF_8));
+        File resourceDir = new File(_testProjectDir.getRoot(), "src/main/resources");
+        resourceDir.mkdirs();
+        TestUtil.writeFile(new File(resourceDir, "plugin.yml"), Resources.toString(Resources.getResource("plugin.yml"), Charsets.UTF_8));
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("generateMetadata", "--build-cache")
+                .withPluginClasspath()
+                .build();
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(SUCCESS);
+
+        File relocatedDir = _relocatedProjectDir.getRoot();
+        TestUtil.writeFile(new File(relocatedDir, "gradle.properties"), _gradleProperties.getContent());
+        TestUtil.writeFile(new File(relocatedDir, "settings.gradle"), settings);
+        TestUtil.writeFile(new File(relocatedDir, "build.gradle"), Resources.toString(Resources.getResource("meta-detail.gradle"), Charsets.UTF_8));
+        File relocatedResourceDir = new File(relocatedDir, "src/main/resources");
+        relocatedResourceDir.mkdirs();
+        TestUtil.writeFile(new File(relocatedResourceDir, "plugin.yml"), Resources.toString(Resources.getResource("plugin.yml"), Charsets.UTF_8));
+
+        result = GradleRunner.create()
+                .withProjectDir(relocatedDir)
+                .withArguments("generateMetadata", "--build-cache")
+                .withPluginClasspath()
+                .build();
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(FROM_CACHE);
+        assertThat(Files.readAllLines(new File(relocatedDir, "build/tmp/generateMetadata/plugin.yml").toPath(), Charsets.UTF_8))
+                .isEqualTo(Files.readAllLines(new File(_testProjectDir.getRoot(), "build/tmp/generateMetadata/plugin.yml").toPath(), Charsets.UTF_8));
+    }
 }
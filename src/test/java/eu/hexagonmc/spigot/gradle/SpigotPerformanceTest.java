@@ -0,0 +1,231 @@
+/**
+ *
+ * Copyright (C) 2017 - 2018  HexagonMc <https://github.com/HexagonMC>
+ * Copyright (C) 2017 - 2018  Zartec <zartec@mccluster.eu>
+ *
+ *     This file is part of Spigot-Gradle.
+ *
+ *     Spigot-Gradle is free software:
+ *     you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Spigot-Gradle is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Spigot-Gradle.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.hexagonmc.spigot.gradle;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import eu.hexagonmc.spigot.gradle.util.ResourceFile;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@RunWith(Parameterized.class)
+public class SpigotPerformanceTest {
+
+    private static final String RESULTS_PROPERTY = "performance.results";
+    private static final String BASELINE_PROPERTY = "performance.baseline";
+    private static final String TOLERANCE_PROPERTY = "performance.tolerance";
+    private static final double DEFAULT_TOLERANCE = 0.25;
+    private static final long SLACK_MILLIS = 100;
+    private static final int RUNS = 3;
+    private static final String[] METRICS = {"configuration", "generateMetadata", "compileJava"};
+
+    @Rule public final TemporaryFolder _testProjectDir = new TemporaryFolder();
+    @Rule public ResourceFile _gradleProperties = new ResourceFile("/testkit-gradle.properties");
+    private final int _projects;
+    private File _initScript;
+    private File _timings;
+
+    public SpigotPerformanceTest(int projects) {
+        _projects = projects;
+    }
+
+    @Parameters(name = "{0} projects")
+    public static Collection<Object[]> projects() {
+        return Arrays.asList(new Object[][] {{1}, {50}, {200}});
+    }
+
+    @Before
+    public void setup() throws IOException {
+        // The jacoco agent of the other tests would distort the measurements
+        String properties = Arrays.stream(_gradleProperties.getContent().split("\n"))
+                .filter(line -> !line.startsWith("org.gradle.jvmargs"))
+                .collect(Collectors.joining("\n"));
+        TestUtil.writeFile(_testProjectDir.newFile("gradle.properties"), properties);
+        StringBuilder settings = new StringBuilder(Resources.toString(Resources.getResource("settings.gradle"), Charsets.UTF_8));
+        for (int i = 0; i < _projects; i++) {
+            settings.append("\ninclude 'plugin").append(i).append('\'');
+            setupPlugin(new File(_testProjectDir.getRoot(), "plugin" + i));
+        }
+        TestUtil.writeFile(_testProjectDir.newFile("settings.gradle"), settings.append('\n').toString());
+        _initScript = _testProjectDir.newFile("performance.gradle");
+        TestUtil.writeFile(_initScript, Resources.toString(Resources.getResource("performance.gradle"), Charsets.UTF_8));
+        _timings = new File(_testProjectDir.getRoot(), "timings.properties");
+    }
+
+    @Test
+    public void testCleanBuild() throws Exception {
+        measure("cleanBuild", null, "clean", "build");
+    }
+
+    @Test
+    public void testNoOpBuild() throws Exception {
+        measure("noOpBuild", null, "build");
+    }
+
+    @Test
+    public void testAbiChange() throws Exception {
+        measure("abiChange", this::changeAbi, "build");
+    }
+
+    @Test
+    public void testResourceChange() throws Exception {
+        measure("resourceChange", this::changeResource, "build");
+    }
+
+    private void measure(String scenario, Change change, String... tasks) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(tasks));
+        arguments.add("--init-script");
+        arguments.add(_initScript.getAbsolutePath());
+        arguments.add("-PperformanceOutput=" + _timings.getAbsolutePath());
+        GradleRunner runner = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments(arguments)
+                .withPluginClasspath();
+
+        // Warm up the daemon and resolve the dependencies
+        runner.build();
+
+        Map<String, long[]> samples = new LinkedHashMap<>();
+        samples.put("total", new long[RUNS]);
+        for (String metric : METRICS) {
+            samples.put(metric, new long[RUNS]);
+        }
+        for (int i = 0; i < RUNS; i++) {
+            if (change != null) {
+                change.apply(i);
+            }
+            long start = System.nanoTime();
+            runner.build();
+            samples.get("total")[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Properties timings = load(_timings);
+            for (String metric : METRICS) {
+                samples.get(metric)[i] = Long.parseLong(timings.getProperty(metric, "0"));
+            }
+        }
+
+        Properties results = new Properties();
+        for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+            long[] values = entry.getValue();
+            Arrays.sort(values);
+            String key = scenario + "." + _projects + "." + entry.getKey();
+            results.setProperty(key, String.valueOf(values[RUNS / 2]));
+            System.out.println(key + ": " + values[RUNS / 2] + "ms (median of " + RUNS + " runs)");
+        }
+        record(results);
+        verify(results);
+    }
+
+    private void record(Properties results) throws IOException {
+        String path = System.getProperty(RESULTS_PROPERTY);
+        if (path == null) {
+            return;
+        }
+        File file = new File(path);
+        file.getParentFile().mkdirs();
+        Properties recorded = file.exists() ? load(file) : new Properties();
+        recorded.putAll(results);
+        try (OutputStream output = new FileOutputStream(file)) {
+            recorded.store(output, "Spigot-Gradle performance results in milliseconds");
+        }
+    }
+
+    private void verify(Properties results) throws IOException {
+        String path = System.getProperty(BASELINE_PROPERTY);
+        if (path == null) {
+            return;
+        }
+        Properties baseline = load(new File(path));
+        double tolerance = Double.parseDouble(System.getProperty(TOLERANCE_PROPERTY, String.valueOf(DEFAULT_TOLERANCE)));
+        for (String key : results.stringPropertyNames()) {
+            String expected = baseline.getProperty(key);
+            if (expected == null) {
+                continue;
+            }
+            long limit = (long) (Long.parseLong(expected) * (1 + tolerance)) + SLACK_MILLIS;
+            assertWithMessage(key + " regressed against baseline of " + expected + "ms")
+                    .that(Long.parseLong(results.getProperty(key))).isAtMost(limit);
+        }
+    }
+
+    private void changeAbi(int run) throws IOException {
+        String source = Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8);
+        source = source.substring(0, source.lastIndexOf('}')) + "    public void abiChange" + run + "() {\n    }\n}\n";
+        TestUtil.writeFile(new File(_testProjectDir.getRoot(), "plugin0/src/main/java/eu/hexagonmc/testplugin/TestSpigotPlugin.java"), source);
+    }
+
+    private void changeResource(int run) throws IOException {
+        String yml = Resources.toString(Resources.getResource("plugin.yml"), Charsets.UTF_8);
+        TestUtil.writeFile(new File(_testProjectDir.getRoot(), "plugin0/src/main/resources/plugin.yml"),
+                yml.replace("1.1-SNAPSHOT", "1.1." + run));
+    }
+
+    private static void setupPlugin(File projectDir) throws IOException {
+        File sourceDir = new File(projectDir, "src/main/java/eu/hexagonmc/testplugin");
+        sourceDir.mkdirs();
+        File resourceDir = new File(projectDir, "src/main/resources");
+        resourceDir.mkdirs();
+        TestUtil.writeFile(new File(projectDir, "build.gradle"), Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(sourceDir, "TestBungeePlugin.java"),
+                Resources.toString(Resources.getResource("TestBungeePlugin.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(sourceDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(resourceDir, "plugin.yml"), Resources.toString(Resources.getResource("plugin.yml"), Charsets.UTF_8));
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        }
+        return properties;
+    }
+
+    private interface Change {
+
+        void apply(int run) throws IOException;
+    }
+}
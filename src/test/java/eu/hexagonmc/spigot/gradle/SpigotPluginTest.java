@@ -24,11 +24,21 @@ package eu.hexagonmc.spigot.gradle;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
+import static org.gradle.testkit.runner.TaskOutcome.FROM_CACHE;
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE;
 
 import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Resources;
+import eu.hexagonmc.spigot.gradle.cds.ClassDataSharingPlugin;
 import eu.hexagonmc.spigot.gradle.util.ResourceFile;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.plugin.EventExecutor;
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
 import org.junit.Before;
@@ -38,12 +48,35 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class SpigotPluginTest {
 
+    private static final String CONFIGURATION_CACHE_GRADLE_VERSION = "6.8.3";
+    private static final long CONFIGURATION_OVERHEAD_MILLIS = 1000;
+    private static final int CONFIGURATION_RUNS = 5;
+
     @Rule public final TemporaryFolder _testProjectDir = new TemporaryFolder();
+    @Rule public final TemporaryFolder _relocatedProjectDir = new TemporaryFolder();
+    @Rule public final TemporaryFolder _baselineProjectDir = new TemporaryFolder();
+    @Rule public final TemporaryFolder _buildCacheDir = new TemporaryFolder();
     @Rule public ResourceFile _gradleProperties = new ResourceFile("/testkit-gradle.properties");
     private File _buildFile;
 
@@ -88,4 +121,670 @@ public class SpigotPluginTest {
         assertThat(lines.get(4)).endsWith("Test meta");
         assertThat(lines.get(5)).endsWith("TestSpigotPlugin");
     }
+
+    @Test
+    public void testConfigurationCache() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8));
+        File sourceDir = new File(_testProjectDir.getRoot(), "src/main/java/eu/hexagonmc/testplugin");
+        sourceDir.mkdirs();
+        TestUtil.writeFile(new File(sourceDir, "TestBungeePlugin.java"),
+                Resources.toString(Resources.getResource("TestBungeePlugin.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(sourceDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+
+        // The configuration cache is only available on newer gradle versions
+        GradleRunner runner = GradleRunner.create()
+                .withGradleVersion(CONFIGURATION_CACHE_GRADLE_VERSION)
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("build", "--configuration-cache")
+                .withPluginClasspath();
+
+        BuildResult result = runner.build();
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Configuration cache entry stored.");
+
+        result = runner.build();
+        assertThat(result.getOutput()).contains("Reusing configuration cache.");
+        assertThat(result.task(":generateMetadata").getOutcome()).isEqualTo(UP_TO_DATE);
+        File spigotYml = new File(_testProjectDir.getRoot(), "build/classes/java/main/plugin.yml");
+        assertWithMessage("plugin.yml file was not generated").that(spigotYml.exists()).isTrue();
+    }
+
+    @Test
+    public void testConfigurationOverhead() throws Exception {
+        String base = Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8);
+        TestUtil.writeFile(_buildFile, base);
+        // The same project without the plugin
+        TestUtil.writeFile(_baselineProjectDir.newFile("gradle.properties"), _gradleProperties.getContent());
+        TestUtil.writeFile(_baselineProjectDir.newFile("settings.gradle"),
+                Resources.toString(Resources.getResource("settings.gradle"), Charsets.UTF_8));
+        TestUtil.writeFile(_baselineProjectDir.newFile("build.gradle"),
+                base.replaceFirst("(?s)plugins \\{.*?\\}", "plugins {\n    id 'java'\n}"));
+
+        GradleRunner runner = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("build", "--dry-run")
+                .withPluginClasspath();
+        GradleRunner baseline = GradleRunner.create()
+                .withProjectDir(_baselineProjectDir.getRoot())
+                .withArguments("build", "--dry-run")
+                .withPluginClasspath();
+
+        // Warm up the daemon
+        BuildResult result = runner.build();
+        assertWithMessage("banner printed without opt-in").that(result.getOutput()).doesNotContain("#####");
+        baseline.build();
+
+        long overhead = medianBuildMillis(runner) - medianBuildMillis(baseline);
+        assertWithMessage("configuration overhead of the plugin").that(overhead).isLessThan(CONFIGURATION_OVERHEAD_MILLIS);
+
+        result = runner.withArguments("help", "-P" + SpigotGradlePlugin.BANNER_PROPERTY + "=true").build();
+        assertWithMessage("banner not printed with opt-in").that(result.getOutput()).contains("#####");
+    }
+
+    private static long medianBuildMillis(GradleRunner runner) {
+        long[] durations = new long[CONFIGURATION_RUNS];
+        for (int i = 0; i < CONFIGURATION_RUNS; i++) {
+            long start = System.nanoTime();
+            runner.build();
+            durations[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        Arrays.sort(durations);
+        return durations[CONFIGURATION_RUNS / 2];
+    }
+
+    @Test
+    public void testIncrementalAnnotationProcessing() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8));
+        File sourceDir = new File(_testProjectDir.getRoot(), "src/main/java/eu/hexagonmc/testplugin");
+        sourceDir.mkdirs();
+        TestUtil.writeFile(new File(sourceDir, "TestBungeePlugin.java"),
+                Resources.toString(Resources.getResource("TestBungeePlugin.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(sourceDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+
+        GradleRunner runner = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("compileJava", "--info")
+                .withPluginClasspath();
+
+        BuildResult result = runner.build();
+        assertThat(result.task(":compileJava").getOutcome()).isEqualTo(SUCCESS);
+        // The fixtures have no package
+        File unchanged = new File(_testProjectDir.getRoot(), "build/classes/java/main/TestSpigotPlugin.class");
+        FileTime unchangedTime = Files.getLastModifiedTime(unchanged.toPath());
+
+        TestUtil.writeFile(new File(sourceDir, "TestBungeePlugin.java"),
+                Resources.toString(Resources.getResource("TestBungeePlugin.java"), Charsets.UTF_8) + "\n// changed\n");
+        result = runner.build();
+        assertThat(result.task(":compileJava").getOutcome()).isEqualTo(SUCCESS);
+        // Only the changed source is recompiled, the annotation processor does not force a full recompilation
+        assertThat(result.getOutput()).contains("Incremental compilation of 1 classes completed");
+        assertThat(Files.getLastModifiedTime(unchanged.toPath())).isEqualTo(unchangedTime);
+        // The processor is aggregating, so the metadata of the unchanged plugin class is still generated
+        List<String> lines = Files.readAllLines(new File(_testProjectDir.getRoot(), "build/classes/java/main/plugin.yml").toPath(),
+                Charsets.UTF_8);
+        assertThat(lines.get(2)).endsWith("TestPlugin");
+        assertThat(lines.get(5)).endsWith("TestSpigotPlugin");
+        lines = Files.readAllLines(new File(_testProjectDir.getRoot(), "build/classes/java/main/bungee.yml").toPath(), Charsets.UTF_8);
+        assertThat(lines.get(2)).endsWith("TestPlugin");
+        assertThat(lines.get(5)).endsWith("TestBungeePlugin");
+    }
+
+    @Test
+    public void testGenerateEventExecutors() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                .replace("id 'eu.hexagonmc.gradle.spigot.meta'", "id 'eu.hexagonmc.gradle.spigot.meta'\n    id 'eu.hexagonmc.gradle.spigot.events'"));
+        File sourceDir = new File(_testProjectDir.getRoot(), "src/main/java");
+        sourceDir.mkdirs();
+        TestUtil.writeFile(new File(sourceDir, "TestListener.java"),
+                Resources.toString(Resources.getResource("TestListener.java"), Charsets.UTF_8));
+        // The bridge method of the generic handler and the handler without an event are skipped by the server
+        TestUtil.writeFile(new File(sourceDir, "BaseListener.java"), "public abstract class BaseListener<T extends org.bukkit.event.Event>\n"
+                + "        implements org.bukkit.event.Listener {\n    public abstract void on(T event);\n}\n");
+        TestUtil.writeFile(new File(sourceDir, "GenericListener.java"), "import org.bukkit.event.EventHandler;\n"
+                + "public class GenericListener extends BaseListener<org.bukkit.event.server.PluginEnableEvent> {\n"
+                + "    @EventHandler\n    public void on(org.bukkit.event.server.PluginEnableEvent event) {\n    }\n"
+                + "    @EventHandler\n    public void notAnEvent(String value) {\n    }\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("classes")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":generateEventExecutors").getOutcome()).isEqualTo(SUCCESS);
+        File classesDir = new File(_testProjectDir.getRoot(), "build/classes/java/main");
+        File generatedDir = new File(_testProjectDir.getRoot(), "build/tmp/generateEventExecutors/classes");
+        assertWithMessage("registrar was not generated").that(new File(generatedDir, "TestListener$EventRegistrar.class").exists()).isTrue();
+        assertThat(new File(generatedDir, "GenericListener$EventExecutor0.class").exists()).isTrue();
+        assertThat(new File(generatedDir, "GenericListener$EventExecutor1.class").exists()).isFalse();
+        File runtimeDir = new File(_testProjectDir.getRoot(), "build/tmp/" + RuntimePlugin.TASK_NAME + "/classes");
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classesDir.toURI().toURL(), generatedDir.toURI().toURL(),
+                runtimeDir.toURI().toURL()}, getClass().getClassLoader())) {
+            assertThat(loader.loadClass("TestListener$EventRegistrar").getInterfaces()[0].getName())
+                    .isEqualTo("eu.hexagonmc.testplugin.runtime.ListenerRegistrar");
+            Class<?> listenerType = loader.loadClass("TestListener");
+            Listener listener = (Listener) listenerType.getConstructor().newInstance();
+            EventExecutor executor = (EventExecutor) loader.loadClass("TestListener$EventExecutor0").getConstructor().newInstance();
+            executor.execute(listener, new PluginEnableEvent(null));
+            executor.execute(listener, new PluginDisableEvent(null));
+            assertThat(listenerType.getField("enabled").getInt(null)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testPluginJarLayout() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\njar {\n    pluginLayout {\n        enabled = true\n        stored = true\n    }\n}\n");
+        File sourceDir = new File(_testProjectDir.getRoot(), "src/main/java");
+        File pluginDir = new File(sourceDir, "eu/hexagonmc/testplugin");
+        pluginDir.mkdirs();
+        TestUtil.writeFile(new File(pluginDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(sourceDir, "TestListener.java"),
+                Resources.toString(Resources.getResource("TestListener.java"), Charsets.UTF_8));
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("jar")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":jar").getOutcome()).isEqualTo(SUCCESS);
+        try (ZipFile zip = new ZipFile(new File(_testProjectDir.getRoot(), "build/libs/TestPlugin-1.0-SNAPSHOT.jar"))) {
+            List<? extends ZipEntry> entries = Collections.list(zip.entries());
+            List<String> names = entries.stream().map(ZipEntry::getName).filter(name -> !name.equals("bungee.yml")).collect(Collectors.toList());
+            assertThat(names.subList(0, 5)).containsExactly("META-INF/", "META-INF/MANIFEST.MF", "plugin.yml",
+                    "TestSpigotPlugin.class", "TestListener.class").inOrder();
+            assertThat(entries.stream().allMatch(entry -> entry.getMethod() == ZipEntry.STORED)).isTrue();
+        }
+    }
+
+    @Test
+    public void testGenerateClassList() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8));
+        File sourceDir = new File(_testProjectDir.getRoot(), "src/main/java/eu/hexagonmc/testplugin");
+        sourceDir.mkdirs();
+        TestUtil.writeFile(new File(sourceDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("jar")
+                .withPluginClasspath()
+                .build();
+
+        assertWithMessage("class list generated by jar").that(result.task(":generateClassList")).isNull();
+
+        result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments(ClassDataSharingPlugin.CLASS_LIST_TASK_NAME)
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":generateClassList").getOutcome()).isEqualTo(SUCCESS);
+        File classList = new File(_testProjectDir.getRoot(), "build/cds/TestPlugin-1.0-SNAPSHOT.classlist");
+        assertWithMessage("class list was not generated").that(classList.exists()).isTrue();
+        // The fixture has no package
+        assertThat(Files.readAllLines(classList.toPath(), Charsets.UTF_8)).containsExactly("TestSpigotPlugin");
+    }
+
+    @Test
+    public void testRunServer() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8));
+        File sourceDir = new File(_testProjectDir.getRoot(), "src/main/java/eu/hexagonmc/testplugin");
+        sourceDir.mkdirs();
+        TestUtil.writeFile(new File(sourceDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("runServer")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":runServer").getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("TestPlugin onEnable: ");
+        File report = new File(_testProjectDir.getRoot(), "build/reports/runServer/phases.tsv");
+        assertWithMessage("report was not written").that(report.exists()).isTrue();
+        List<String> lines = Files.readAllLines(report.toPath(), Charsets.UTF_8);
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(2)).startsWith("TestPlugin\tonEnable\t");
+    }
+
+    @Test
+    public void testRunServerWithDependency() throws Exception {
+        String base = Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8);
+        TestUtil.writeFile(new File(_testProjectDir.getRoot(), "settings.gradle"),
+                Resources.toString(Resources.getResource("settings.gradle"), Charsets.UTF_8) + "\ninclude 'economy'\n");
+        TestUtil.writeFile(_buildFile, base
+                + "\nspigot {\n    dependency 'economy', 'DEPEND'\n}\n"
+                + "runServer {\n    plugins.from project(':economy').tasks.jar\n}\n"
+                + "project(':economy') {\n    apply plugin: 'java'\n    apply plugin: 'eu.hexagonmc.gradle.spigot.meta'\n"
+                + "    repositories {\n        maven {\n            url 'https://hub.spigotmc.org/nexus/content/repositories/snapshots/'\n        }\n"
+                + "        jcenter()\n    }\n"
+                + "    dependencies {\n        compileOnly \"org.spigotmc:spigot-api:${version_spigot}-SNAPSHOT\"\n    }\n"
+                + "    spigot {\n        main 'eu.hexagonmc.economy.Economy'\n    }\n}\n");
+        File economyDir = new File(_testProjectDir.getRoot(), "economy/src/main/java/eu/hexagonmc/economy");
+        economyDir.mkdirs();
+        TestUtil.writeFile(new File(economyDir, "Economy.java"), "package eu.hexagonmc.economy;\n"
+                + "public class Economy extends org.bukkit.plugin.java.JavaPlugin {\n}\n");
+        File sourceDir = new File(_testProjectDir.getRoot(), "src/main/java/eu/hexagonmc/testplugin");
+        sourceDir.mkdirs();
+        TestUtil.writeFile(new File(sourceDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("runServer")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":runServer").getOutcome()).isEqualTo(SUCCESS);
+        List<String> lines = Files.readAllLines(new File(_testProjectDir.getRoot(), "build/reports/runServer/phases.tsv").toPath(),
+                Charsets.UTF_8);
+        assertThat(lines).hasSize(8);
+        assertThat(lines.get(4)).startsWith("economy\tonEnable\t");
+        assertThat(lines.get(5)).startsWith("TestPlugin\tonEnable\t");
+    }
+
+    @Test
+    public void testMinimizePluginJar() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\nconfigurations {\n    shade\n    compile.extendsFrom shade\n}\n"
+                + "dependencies {\n    shade 'com.google.code.gson:gson:2.8.5'\n}\n"
+                + "jar {\n    from { configurations.shade.collect { zipTree(it) } }\n}\n");
+        File sourceDir = new File(_testProjectDir.getRoot(), "src/main/java");
+        File pluginDir = new File(sourceDir, "eu/hexagonmc/testplugin");
+        pluginDir.mkdirs();
+        TestUtil.writeFile(new File(pluginDir, "TestBungeePlugin.java"),
+                Resources.toString(Resources.getResource("TestBungeePlugin.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(pluginDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(sourceDir, "TestListener.java"),
+                Resources.toString(Resources.getResource("TestListener.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(pluginDir, "JsonListener.java"), "package eu.hexagonmc.testplugin;\n"
+                + "public class JsonListener implements org.bukkit.event.Listener {\n"
+                + "    @org.bukkit.event.EventHandler\n"
+                + "    public void onEnable(org.bukkit.event.server.PluginEnableEvent event) {\n"
+                + "        System.out.println(new com.google.gson.Gson().toJson(event.getEventName()));\n"
+                + "    }\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("minimizePluginJar")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":minimizePluginJar").getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Minimized");
+        File jar = new File(_testProjectDir.getRoot(), "build/libs/minimized/TestPlugin-1.0-SNAPSHOT.jar");
+        assertWithMessage("minimized jar was not created").that(jar.exists()).isTrue();
+        try (ZipFile zip = new ZipFile(jar)) {
+            assertThat(zip.getEntry("plugin.yml")).isNotNull();
+            assertThat(zip.getEntry("bungee.yml")).isNotNull();
+            assertThat(zip.getEntry("TestSpigotPlugin.class")).isNotNull();
+            assertThat(zip.getEntry("TestBungeePlugin.class")).isNotNull();
+            assertThat(zip.getEntry("TestListener.class")).isNotNull();
+            assertThat(zip.getEntry("eu/hexagonmc/testplugin/JsonListener.class")).isNotNull();
+            // Gson and the classes it uses are reachable from the listener
+            assertThat(zip.getEntry("com/google/gson/Gson.class")).isNotNull();
+            assertThat(zip.getEntry("com/google/gson/TypeAdapter.class")).isNotNull();
+            assertThat(zip.getEntry("com/google/gson/internal/Excluder.class")).isNotNull();
+            assertThat(zip.getEntry("com/google/gson/stream/JsonWriter.class")).isNotNull();
+            assertThat(zip.getEntry("com/google/gson/JsonStreamParser.class")).isNull();
+            try (ZipFile gson = new ZipFile(new File(jar.getParentFile().getParentFile(), "TestPlugin-1.0-SNAPSHOT.jar"))) {
+                long kept = zip.stream().filter(entry -> entry.getName().startsWith("com/google/gson/")).count();
+                long packed = gson.stream().filter(entry -> entry.getName().startsWith("com/google/gson/")).count();
+                assertThat(kept).isLessThan(packed);
+            }
+        }
+    }
+
+    @Test
+    public void testRelocatedJar() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\ndependencies {\n    spigotShade 'com.google.code.gson:gson:2.8.5'\n}\n"
+                + "spigotRelocation {\n    relocate 'com.google.gson', 'eu.hexagonmc.testplugin.gson'\n}\n");
+        File pluginDir = new File(_testProjectDir.getRoot(), "src/main/java/eu/hexagonmc/testplugin");
+        pluginDir.mkdirs();
+        TestUtil.writeFile(new File(pluginDir, "Json.java"), "package eu.hexagonmc.testplugin;\n"
+                + "public class Json {\n    public static final Object GSON = new com.google.gson.Gson();\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("relocatedJar")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":relocatedJar").getOutcome()).isEqualTo(SUCCESS);
+        File jar = new File(_testProjectDir.getRoot(), "build/libs/TestPlugin-1.0-SNAPSHOT-relocated.jar");
+        assertWithMessage("relocated jar was not created").that(jar.exists()).isTrue();
+        try (ZipFile zip = new ZipFile(jar)) {
+            assertThat(zip.getEntry("plugin.yml")).isNotNull();
+            assertThat(zip.getEntry("eu/hexagonmc/testplugin/gson/Gson.class")).isNotNull();
+            assertThat(zip.stream().filter(entry -> entry.getName().startsWith("com/google/gson")).count()).isEqualTo(0L);
+            String json = new String(ByteStreams.toByteArray(zip.getInputStream(zip.getEntry("eu/hexagonmc/testplugin/Json.class"))),
+                    StandardCharsets.ISO_8859_1);
+            assertThat(json).contains("eu/hexagonmc/testplugin/gson/Gson");
+            assertThat(json).doesNotContain("com/google/gson/Gson");
+        }
+
+        result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("relocatedJar")
+                .withPluginClasspath()
+                .build();
+        assertThat(result.task(":relocatePluginClasses").getOutcome()).isEqualTo(UP_TO_DATE);
+    }
+
+    @Test
+    public void testRelocatedJarNestedRules() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\ndependencies {\n    spigotShade 'com.google.code.gson:gson:2.8.5'\n}\n"
+                + "spigotRelocation {\n    relocate 'com.google.gson', 'eu.hexagonmc.testplugin.gson'\n"
+                + "    relocate 'com.google.gson.internal', 'eu.hexagonmc.testplugin.internal'\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("relocatedJar")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":relocatedJar").getOutcome()).isEqualTo(SUCCESS);
+        try (ZipFile zip = new ZipFile(new File(_testProjectDir.getRoot(), "build/libs/TestPlugin-1.0-SNAPSHOT-relocated.jar"))) {
+            assertThat(zip.getEntry("eu/hexagonmc/testplugin/gson/Gson.class")).isNotNull();
+            assertThat(zip.getEntry("eu/hexagonmc/testplugin/internal/Excluder.class")).isNotNull();
+            assertThat(zip.getEntry("eu/hexagonmc/testplugin/gson/internal/Excluder.class")).isNull();
+        }
+    }
+
+    @Test
+    public void testRelocatedJarMergesServices() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\ndependencies {\n    spigotShade 'com.fasterxml.jackson.core:jackson-core:2.9.6'\n}\n"
+                + "spigotRelocation {\n    relocate 'com.fasterxml.jackson.core', 'eu.hexagonmc.testplugin.jackson'\n}\n");
+        File servicesDir = new File(_testProjectDir.getRoot(), "src/main/resources/META-INF/services");
+        servicesDir.mkdirs();
+        TestUtil.writeFile(new File(servicesDir, "com.fasterxml.jackson.core.JsonFactory"), "eu.hexagonmc.testplugin.TestFactory\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("relocatedJar")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":relocatedJar").getOutcome()).isEqualTo(SUCCESS);
+        try (ZipFile zip = new ZipFile(new File(_testProjectDir.getRoot(), "build/libs/TestPlugin-1.0-SNAPSHOT-relocated.jar"))) {
+            ZipEntry services = zip.getEntry("META-INF/services/eu.hexagonmc.testplugin.jackson.JsonFactory");
+            assertThat(services).isNotNull();
+            String providers = new String(ByteStreams.toByteArray(zip.getInputStream(services)), StandardCharsets.UTF_8);
+            assertThat(Arrays.asList(providers.split("\\R")))
+                    .containsExactly("eu.hexagonmc.testplugin.TestFactory", "eu.hexagonmc.testplugin.jackson.JsonFactory").inOrder();
+            assertThat(zip.getEntry("META-INF/services/com.fasterxml.jackson.core.JsonFactory")).isNull();
+        }
+    }
+
+    @Test
+    public void testSpigotLibrary() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\nconfigurations {\n    shade\n    compile.extendsFrom shade\n}\n"
+                + "dependencies {\n    shade 'com.google.code.gson:gson:2.8.5'\n    spigotLibrary 'com.google.code.gson:gson:2.8.5'\n}\n"
+                + "jar {\n    from { configurations.shade.collect { zipTree(it) } }\n}\n");
+        File pluginDir = new File(_testProjectDir.getRoot(), "src/main/java/eu/hexagonmc/testplugin");
+        pluginDir.mkdirs();
+        TestUtil.writeFile(new File(pluginDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("jar", "spigotLibraryReport")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":spigotLibraryReport").getOutcome()).isEqualTo(SUCCESS);
+        List<String> lines = Files.readAllLines(new File(_testProjectDir.getRoot(), "build/classes/java/main/plugin.yml").toPath(), Charsets.UTF_8);
+        assertThat(lines).containsAllOf("libraries:", "- \"com.google.code.gson:gson:2.8.5\"").inOrder();
+        File jar = new File(_testProjectDir.getRoot(), "build/libs/TestPlugin-1.0-SNAPSHOT.jar");
+        try (ZipFile zip = new ZipFile(jar)) {
+            assertThat(zip.getEntry("TestSpigotPlugin.class")).isNotNull();
+            assertThat(zip.stream().filter(entry -> entry.getName().startsWith("com/google/gson")).count()).isEqualTo(0L);
+        }
+        File report = new File(_testProjectDir.getRoot(), "build/reports/spigotLibraries/libraries.txt");
+        assertThat(Files.readAllLines(report.toPath(), Charsets.UTF_8)).contains("com.google.code.gson:gson:2.8.5");
+    }
+
+    @Test
+    public void testPluginFootprint() throws Exception {
+        TestUtil.writeFile(new File(_testProjectDir.getRoot(), "settings.gradle"),
+                Resources.toString(Resources.getResource("settings.gradle"), Charsets.UTF_8) + "\ninclude 'core', 'shop'\n");
+        TestUtil.writeFile(_buildFile, "plugins {\n    id 'eu.hexagonmc.gradle.spigot' apply false\n"
+                + "    id 'eu.hexagonmc.gradle.spigot.footprint'\n}\n"
+                + "subprojects {\n    apply plugin: 'eu.hexagonmc.gradle.spigot'\n    version = '1.0'\n"
+                + "    repositories {\n        jcenter()\n        maven {\n"
+                + "            url 'https://hub.spigotmc.org/nexus/content/repositories/snapshots/'\n        }\n    }\n"
+                + "    configurations {\n        shade\n        compile.extendsFrom shade\n    }\n"
+                + "    dependencies {\n        compileOnly \"org.spigotmc:spigot-api:${version_spigot}-SNAPSHOT\"\n"
+                + "        shade 'com.google.code.gson:gson:2.8.5'\n    }\n"
+                + "    jar {\n        from { configurations.shade.collect { zipTree(it) } }\n    }\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("pluginFootprint", "generateLibraryPlugin")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":pluginFootprint").getOutcome()).isEqualTo(SUCCESS);
+        File report = new File(_testProjectDir.getRoot(), "build/reports/pluginFootprint/duplicates.txt");
+        List<String> lines = Files.readAllLines(report.toPath(), Charsets.UTF_8);
+        assertThat(lines.get(1)).startsWith("gson-2.8.5.jar\t");
+        assertThat(lines.get(1)).endsWith("\tcore-1.0.jar, shop-1.0.jar");
+        File jar = new File(_testProjectDir.getRoot(), "build/libraryPlugin/SharedLibraries.jar");
+        try (ZipFile zip = new ZipFile(jar)) {
+            assertThat(zip.getEntry("plugin.yml")).isNotNull();
+            assertThat(zip.getEntry("shared/sharedlibraries/SharedLibraries.class")).isNotNull();
+            assertThat(zip.getEntry("com/google/gson/Gson.class")).isNotNull();
+        }
+    }
+
+    @Test
+    public void testLatencyProbes() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\nlatencyProbes {\n    enabled = true\n}\n");
+        File sourceDir = new File(_testProjectDir.getRoot(), "src/main/java");
+        File pluginDir = new File(sourceDir, "eu/hexagonmc/testplugin");
+        pluginDir.mkdirs();
+        TestUtil.writeFile(new File(pluginDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(sourceDir, "TestListener.java"),
+                Resources.toString(Resources.getResource("TestListener.java"), Charsets.UTF_8));
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("classes")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":compileJava").getOutcome()).isEqualTo(SUCCESS);
+        File classesDir = new File(_testProjectDir.getRoot(), "build/classes/java/main");
+        List<String> lines = Files.readAllLines(new File(classesDir, "plugin.yml").toPath(), Charsets.UTF_8);
+        assertWithMessage("latency command was not added").that(lines.stream().anyMatch(line -> line.trim().equals("latency:"))).isTrue();
+        File runtimeDir = new File(_testProjectDir.getRoot(), "build/tmp/" + RuntimePlugin.TASK_NAME + "/classes");
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classesDir.toURI().toURL(), runtimeDir.toURI().toURL()},
+                getClass().getClassLoader())) {
+            Class<?> listener = loader.loadClass("TestListener");
+            listener.getMethod("onEnable", PluginEnableEvent.class).invoke(listener.getConstructor().newInstance(), (Object) null);
+            Class<?> probes = loader.loadClass("TestSpigotPlugin$LatencyProbes");
+            Field histograms = probes.getDeclaredField("HISTOGRAMS");
+            histograms.setAccessible(true);
+            Object[] recorded = (Object[]) histograms.get(null);
+            assertThat(recorded).hasLength(1);
+            // The plugin ships its own relocated histogram
+            assertThat(recorded[0].getClass().getName()).isEqualTo("eu.hexagonmc.testplugin.runtime.LatencyHistogram");
+            assertThat(recorded[0].getClass().getMethod("getCount").invoke(recorded[0])).isEqualTo(1L);
+            assertThat(loader.loadClass("TestSpigotPlugin").getDeclaredMethod("onEnable")).isNotNull();
+        }
+    }
+
+    @Test
+    public void testLatencyProbesDisabled() throws Exception {
+        String base = Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8);
+        TestUtil.writeFile(_buildFile, base);
+        // The same project without the plugin, so without any probe wiring
+        TestUtil.writeFile(_baselineProjectDir.newFile("gradle.properties"), _gradleProperties.getContent());
+        TestUtil.writeFile(_baselineProjectDir.newFile("settings.gradle"),
+                Resources.toString(Resources.getResource("settings.gradle"), Charsets.UTF_8));
+        TestUtil.writeFile(_baselineProjectDir.newFile("build.gradle"),
+                base.replaceFirst("(?s)plugins \\{.*?\\}", "plugins {\n    id 'java'\n}"));
+        for (File projectDir : new File[] {_testProjectDir.getRoot(), _baselineProjectDir.getRoot()}) {
+            File sourceDir = new File(projectDir, "src/main/java");
+            sourceDir.mkdirs();
+            TestUtil.writeFile(new File(sourceDir, "TestListener.java"),
+                    Resources.toString(Resources.getResource("TestListener.java"), Charsets.UTF_8));
+            TestUtil.writeFile(new File(sourceDir, "TestCommand.java"), "import org.bukkit.command.*;\n"
+                    + "public class TestCommand implements CommandExecutor {\n"
+                    + "    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {\n"
+                    + "        return true;\n    }\n}\n");
+        }
+
+        for (File projectDir : new File[] {_testProjectDir.getRoot(), _baselineProjectDir.getRoot()}) {
+            BuildResult result = GradleRunner.create()
+                    .withProjectDir(projectDir)
+                    .withArguments("compileJava")
+                    .withPluginClasspath()
+                    .build();
+            assertThat(result.task(":compileJava").getOutcome()).isEqualTo(SUCCESS);
+        }
+
+        for (String classFile : new String[] {"TestListener.class", "TestCommand.class"}) {
+            byte[] probed = Files.readAllBytes(new File(_testProjectDir.getRoot(), "build/classes/java/main/" + classFile).toPath());
+            byte[] baseline = Files.readAllBytes(new File(_baselineProjectDir.getRoot(), "build/classes/java/main/" + classFile).toPath());
+            assertWithMessage(classFile + " differs from the build without probes").that(Arrays.equals(probed, baseline)).isTrue();
+        }
+        try (Stream<Path> files = Files.walk(new File(_testProjectDir.getRoot(), "build/classes/java/main").toPath())) {
+            assertThat(files.filter(file -> file.toString().endsWith(".class")).count()).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    public void testGenerateCommandDispatcher() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\ngenerateCommandDispatcher {\n    className = 'eu.hexagonmc.testplugin.Commands'\n}\n"
+                + "spigot {\n    command('test') {\n        alias 'tst'\n        permission 'test.use'\n    }\n    command 'other'\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("compileJava")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":generateCommandDispatcher").getOutcome()).isEqualTo(SUCCESS);
+        File classesDir = new File(_testProjectDir.getRoot(), "build/classes/java/main");
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classesDir.toURI().toURL()}, getClass().getClassLoader())) {
+            Method lookup = loader.loadClass("eu.hexagonmc.testplugin.Commands").getMethod("lookup", String.class);
+            assertThat(lookup.invoke(null, "test")).isEqualTo(1);
+            assertThat(lookup.invoke(null, "tst")).isEqualTo(1);
+            assertThat(lookup.invoke(null, "other")).isEqualTo(0);
+            assertThat(lookup.invoke(null, "unknown")).isEqualTo(-1);
+
+            Class<?> commands = loader.loadClass("eu.hexagonmc.testplugin.Commands");
+            Class<?> handlerType = loader.loadClass("eu.hexagonmc.testplugin.Commands$Handler");
+            List<String> labels = new ArrayList<>();
+            Object handler = Proxy.newProxyInstance(loader, new Class<?>[] {handlerType}, (proxy, method, args) -> labels.add((String) args[2]));
+            Object dispatcher = commands.getConstructor().newInstance();
+            commands.getMethod("on", int.class, handlerType).invoke(dispatcher, 1, handler);
+            Method dispatch = commands.getMethod("dispatch", CommandSender.class, Command.class, String.class, String[].class);
+            Command test = new Command("test") {
+
+                @Override
+                public boolean execute(CommandSender sender, String label, String[] args) {
+                    return false;
+                }
+            };
+            assertThat(dispatch.invoke(dispatcher, sender(true), test, "tst", new String[0])).isEqualTo(true);
+            assertThat(dispatch.invoke(dispatcher, sender(true), test, "testplugin:tst", new String[0])).isEqualTo(true);
+            // The server checks the permission before the executor is called
+            assertThat(dispatch.invoke(dispatcher, sender(false), test, "test", new String[0])).isEqualTo(true);
+            assertThat(labels).containsExactly("tst", "testplugin:tst", "test").inOrder();
+        }
+    }
+
+    @Test
+    public void testGenerateCommandDispatcherWithManyCommands() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\ngenerateCommandDispatcher {\n    className = 'eu.hexagonmc.testplugin.Commands'\n}\n"
+                + "spigot {\n    (0..<2000).each {\n        command(\"command$it\".toString())\n    }\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("compileJava")
+                .withPluginClasspath()
+                .build();
+
+        assertThat(result.task(":compileJava").getOutcome()).isEqualTo(SUCCESS);
+        File classesDir = new File(_testProjectDir.getRoot(), "build/classes/java/main");
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classesDir.toURI().toURL()}, getClass().getClassLoader())) {
+            Method lookup = loader.loadClass("eu.hexagonmc.testplugin.Commands").getMethod("lookup", String.class);
+            for (int i = 0; i < 2000; i++) {
+                assertThat(lookup.invoke(null, "command" + i)).isEqualTo(i);
+            }
+            assertThat(lookup.invoke(null, "command2000")).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void testGenerateCommandDispatcherWithEqualHashCodes() throws Exception {
+        TestUtil.writeFile(_buildFile, Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8)
+                + "\ngenerateCommandDispatcher {\n    className = 'eu.hexagonmc.testplugin.Commands'\n}\n"
+                + "spigot {\n    command 'Aa'\n    command 'BB'\n}\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("generateCommandDispatcher")
+                .withPluginClasspath()
+                .buildAndFail();
+
+        assertThat(result.getOutput()).contains("The command labels Aa and BB have the same hash code");
+    }
+
+    private static CommandSender sender(boolean permitted) {
+        return (CommandSender) Proxy.newProxyInstance(SpigotPluginTest.class.getClassLoader(), new Class<?>[] {CommandSender.class},
+                (proxy, method, args) -> method.getName().equals("hasPermission") ? permitted : null);
+    }
+
+    @Test
+    public void testCompileJavaFromCache() throws Exception {
+        String settings = Resources.toString(Resources.getResource("settings.gradle"), Charsets.UTF_8)
+                + "\nbuildCache {\n    local {\n        directory = new File('"
+                + _buildCacheDir.getRoot().getAbsolutePath().replace('\\', '/') + "')\n    }\n}\n";
+        setupProject(_testProjectDir.getRoot(), settings);
+        setupProject(_relocatedProjectDir.getRoot(), settings);
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(_testProjectDir.getRoot())
+                .withArguments("compileJava", "--build-cache")
+                .withPluginClasspath()
+                .build();
+        assertThat(result.task(":compileJava").getOutcome()).isEqualTo(SUCCESS);
+
+        result = GradleRunner.create()
+                .withProjectDir(_relocatedProjectDir.getRoot())
+                .withArguments("compileJava", "--build-cache")
+                .withPluginClasspath()
+                .build();
+        assertThat(result.task(":compileJava").getOutcome()).isEqualTo(FROM_CACHE);
+    }
+
+    private void setupProject(File projectDir, String settings) throws IOException {
+        TestUtil.writeFile(new File(projectDir, "gradle.properties"), _gradleProperties.getContent());
+        TestUtil.writeFile(new File(projectDir, "settings.gradle"), settings);
+        TestUtil.writeFile(new File(projectDir, "build.gradle"), Resources.toString(Resources.getResource("base.gradle"), Charsets.UTF_8));
+        File sourceDir = new File(projectDir, "src/main/java/eu/hexagonmc/testplugin");
+        sourceDir.mkdirs();
+        TestUtil.writeFile(new File(sourceDir, "TestBungeePlugin.java"),
+                Resources.toString(Resources.getResource("TestBungeePlugin.java"), Charsets.UTF_8));
+        TestUtil.writeFile(new File(sourceDir, "TestSpigotPlugin.java"),
+                Resources.toString(Resources.getResource("TestSpigotPlugin.java"), Charsets.UTF_8));
+    }
 }